@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import dsa41basis.util.DSAUtil;
+import dsatool.resources.ResourceManager;
+import dsatool.util.Util;
+import javafx.application.Platform;
+import jsonant.value.JSONArray;
+import jsonant.value.JSONObject;
+
+/**
+ * Provides the plant catalogs and regions the benchmarks run on, either the real data or synthetic data of a given size
+ */
+final class BenchmarkData {
+
+	/**
+	 * The dataset parameter selecting the real plants and regions
+	 */
+	static final String REAL = "Pflanzen";
+
+	static final int SYNTHETIC_REGIONS = 500;
+	private static final int MAP_WIDTH = 1341;
+	private static final int MAP_HEIGHT = 2063;
+	private static final long SEED = 4711;
+
+	private static File getRegionDirectory() {
+		return new File(Util.getAppDir() + "/resources/images/maps/regions");
+	}
+
+	/**
+	 * Creates the catalog for the given dataset
+	 *
+	 * @param dataset
+	 *            {@link #REAL} or the number of synthetic plants
+	 */
+	static PlantCatalog createCatalog(final String dataset) {
+		if (REAL.equals(dataset)) return new PlantCatalog(ResourceManager.getResource("data/Pflanzen"), RegionIndex.getRegionNames(getRegionDirectory().listFiles()));
+		return createSyntheticCatalog(Integer.parseInt(dataset), SYNTHETIC_REGIONS);
+	}
+
+	/**
+	 * Creates the region outlines for the given dataset
+	 *
+	 * @param dataset
+	 *            {@link #REAL} or the number of synthetic regions
+	 */
+	static RegionOutlines createRegions(final String dataset) {
+		if (REAL.equals(dataset)) {
+			// The masks are decoded with ImageIO, so no display is needed
+			return RegionOutlines.trace(RegionIndex.load(getRegionDirectory().listFiles()));
+		}
+		return createSyntheticRegions(Integer.parseInt(dataset));
+	}
+
+	/**
+	 * Starts the JavaFX toolkit, which is needed to create controls
+	 */
+	static void startToolkit() {
+		try {
+			Platform.startup(() -> {});
+		} catch (final IllegalStateException e) {
+			// Already running
+		}
+	}
+
+	private static List<String> getSyntheticRegionNames(final int count) {
+		final List<String> names = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			names.add(String.format("Gebiet%04d", i));
+		}
+		return names;
+	}
+
+	private static JSONObject createRoll(final JSONObject parent, final int dice, final int sides, final int value) {
+		final JSONObject roll = new JSONObject(parent);
+		roll.put("Würfel:Anzahl", dice);
+		roll.put("Würfel:Typ", sides);
+		roll.put("Wert", value);
+		return roll;
+	}
+
+	static PlantCatalog createSyntheticCatalog(final int plantCount, final int regionCount) {
+		final SplittableRandom random = new SplittableRandom(SEED);
+		final List<String> regionNames = getSyntheticRegionNames(regionCount);
+		final PlantType[] types = PlantType.values();
+		final Prevalence[] prevalences = { Prevalence.VERY_COMMON, Prevalence.COMMON, Prevalence.OCCASIONAL, Prevalence.RARE, Prevalence.VERY_RARE };
+
+		final JSONObject data = new JSONObject(null);
+		for (int i = 0; i < plantCount; ++i) {
+			final JSONObject plant = new JSONObject(data);
+
+			final JSONArray typeNames = new JSONArray(plant);
+			typeNames.add(types[random.nextInt(types.length)].name);
+			if (random.nextInt(4) == 0) {
+				typeNames.add(types[random.nextInt(types.length)].name);
+			}
+			plant.put("Typ", typeNames);
+
+			final JSONObject prevalence = new JSONObject(plant);
+			for (int j = 1 + random.nextInt(4); j > 0; --j) {
+				final String terrain = ZoobotanicalUtil.terrains.get(1 + random.nextInt(ZoobotanicalUtil.terrains.size() - 1));
+				prevalence.put(terrain, prevalences[random.nextInt(prevalences.length)].name);
+			}
+			plant.put("Verbreitung", prevalence);
+
+			final JSONArray regions = new JSONArray(plant);
+			for (int j = 1 + random.nextInt(8); j > 0; --j) {
+				regions.add(regionNames.get(random.nextInt(regionCount)));
+			}
+			plant.put("Gebiet", regions);
+
+			if (random.nextInt(10) > 0) {
+				final JSONArray harvest = new JSONArray(plant);
+				final int first = random.nextInt(12);
+				for (int j = 1 + random.nextInt(6); j > 0; --j) {
+					harvest.add(DSAUtil.months[(first + j) % 12]);
+				}
+				plant.put("Ernte", harvest);
+			}
+
+			plant.put("Bestimmung", 1 + random.nextInt(15));
+			if (random.nextInt(5) > 0) {
+				final JSONObject amount = createRoll(plant, 1 + random.nextInt(3), 6, random.nextInt(3));
+				amount.put("Art", "Blätter");
+				plant.put("Grundmenge", amount);
+				plant.put("Haltbarkeit", createRoll(plant, 1, 6, 1 + random.nextInt(12)));
+				plant.put("Preis", 0.1 * (1 + random.nextInt(500)));
+			}
+			if (random.nextInt(3) == 0) {
+				plant.put("Anmerkungen", "Wächst bevorzugt an schattigen Hängen, Blätter " + i);
+			}
+			data.put(String.format("Kraut %06d", i), plant);
+		}
+		return new PlantCatalog(data, regionNames);
+	}
+
+	private static RegionOutlines createSyntheticRegions(final int regionCount) {
+		final SplittableRandom random = new SplittableRandom(SEED);
+		final List<List<float[]>> regions = new ArrayList<>(regionCount);
+		for (int i = 0; i < regionCount; ++i) {
+			final double centerX = random.nextDouble(MAP_WIDTH);
+			final double centerY = random.nextDouble(MAP_HEIGHT);
+			final double radius = 20 + random.nextDouble(280);
+			final int points = 32 + random.nextInt(224);
+			final float[] ring = new float[points * 2];
+			for (int j = 0; j < points; ++j) {
+				final double angle = 2 * Math.PI * j / points;
+				final double distance = radius * (0.7 + 0.3 * random.nextDouble());
+				ring[j * 2] = (float) (centerX + distance * Math.cos(angle));
+				ring[j * 2 + 1] = (float) (centerY + distance * Math.sin(angle));
+			}
+			regions.add(List.of(ring));
+		}
+		return new RegionOutlines(getSyntheticRegionNames(regionCount), MAP_WIDTH, MAP_HEIGHT, regions);
+	}
+
+	private BenchmarkData() {}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dsa41basis.util.DSAUtil;
+import zoobotanical.harvest.HarvestSimulator;
+import zoobotanical.harvest.TapDistribution;
+
+/**
+ * The number of plants found and the dice rolled when searching for any plant, as computed by the harvest dialog
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HarvestBenchmark {
+
+	@Param({ BenchmarkData.REAL, "10000", "100000" })
+	public String dataset;
+
+	@Param({ "5", "15" })
+	public int tap;
+
+	private PlantCatalog plants;
+	private int terrain;
+	private long[] available;
+	private int[] ordinals;
+	private int[] counts;
+	private int[] amounts;
+	private long seed;
+	private HarvestSimulator simulator;
+	private TapDistribution taps;
+
+	@Setup
+	public void setup() {
+		plants = BenchmarkData.createCatalog(dataset);
+		terrain = plants.getTerrainOrdinal("Wald");
+		available = plants.getIndex().getAvailable(-1, terrain, null);
+		simulator = new HarvestSimulator(plants);
+		taps = TapDistribution.uniform(0, tap);
+
+		final long[] harvestable = plants.getHarvestThresholds().getHarvestable(terrain, tap);
+		for (int i = 0; i < harvestable.length; ++i) {
+			harvestable[i] &= available[i];
+		}
+		ordinals = new int[CatalogIndex.cardinality(harvestable)];
+		counts = new int[ordinals.length];
+		amounts = new int[ordinals.length];
+		int i = 0;
+		for (int ordinal = CatalogIndex.nextSetBit(harvestable, 0); ordinal >= 0; ordinal = CatalogIndex.nextSetBit(harvestable, ordinal + 1), ++i) {
+			ordinals[i] = ordinal;
+			counts[i] = ZoobotanicalUtil.getHarvestCount(false, tap, ZoobotanicalUtil.getSearchDifficulty(plants.getPlants().get(ordinal), terrain));
+		}
+	}
+
+	/**
+	 * Evaluates the count rule for every available plant with an amount
+	 */
+	@Benchmark
+	public int countPerPlant() {
+		int result = 0;
+		for (int ordinal = CatalogIndex.nextSetBit(available, 0); ordinal >= 0; ordinal = CatalogIndex.nextSetBit(available, ordinal + 1)) {
+			final Plant plant = plants.getPlants().get(ordinal);
+			if (plant.getAmount() != null && ZoobotanicalUtil.getHarvestCount(false, tap, ZoobotanicalUtil.getSearchDifficulty(plant, terrain)) > 0) {
+				++result;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Looks up the same plants in the TaP* thresholds
+	 */
+	@Benchmark
+	public long[] countFromThresholds() {
+		final long[] harvestable = plants.getHarvestThresholds().getHarvestable(terrain, tap);
+		for (int i = 0; i < harvestable.length; ++i) {
+			harvestable[i] &= available[i];
+		}
+		return harvestable;
+	}
+
+	@Benchmark
+	public int rollWithDSAUtil() {
+		int result = 0;
+		for (int i = 0; i < ordinals.length; ++i) {
+			final Plant plant = plants.getPlants().get(ordinals[i]);
+			result += DSAUtil.randomRoll(plant.getAmount(), counts[i]);
+			result += DSAUtil.randomRoll(plant.getDurability());
+		}
+		return result;
+	}
+
+	@Benchmark
+	public int[] rollWithKernel() {
+		final DiceKernel dice = plants.getDice();
+		dice.rollAmounts(++seed, ordinals, counts, amounts);
+		for (int i = 0; i < ordinals.length; ++i) {
+			amounts[i] += dice.rollDurability(seed, ordinals[i]);
+		}
+		return amounts;
+	}
+
+	/**
+	 * Simulates an expedition as the yield estimate of the harvest dialog does, one task of searches
+	 */
+	@Benchmark
+	public List<HarvestSimulator.Result> simulate() {
+		return simulator.simulate(-1, terrain, null, taps, 1 << 16, ++seed);
+	}
+}
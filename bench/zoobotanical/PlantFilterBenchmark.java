@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+
+/**
+ * The availability checks and the filtering of the plant list
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlantFilterBenchmark {
+
+	@Param({ BenchmarkData.REAL, "10000", "100000" })
+	public String dataset;
+
+	private PlantCatalog plants;
+	private CatalogSearch search;
+	private CatalogAvailability uncached;
+	private int harvestTime;
+	private int terrain;
+	private BitSet location;
+	private FilteredList<Plant> availablePlants;
+	private boolean toggle;
+
+	@Setup
+	public void setup() {
+		plants = BenchmarkData.createCatalog(dataset);
+		search = new CatalogSearch(plants);
+		// Without cache entries, every pass goes through the index like a filter combination that was not used before
+		uncached = new CatalogAvailability(plants.getIndex(), 0);
+		harvestTime = plants.getMonthOrdinal("Peraine");
+		terrain = plants.getTerrainOrdinal("Wald");
+
+		// The regions of the first located plant stand in for a location picked on the map
+		location = new BitSet();
+		for (final Plant plant : plants.getPlants()) {
+			if (plant.hasRegions()) {
+				location = plant.getRegions();
+				break;
+			}
+		}
+
+		final ObservableList<Plant> allPlants = FXCollections.observableArrayList(plants.getPlants());
+		availablePlants = new FilteredList<>(allPlants);
+	}
+
+	@Benchmark
+	public int difficulty() {
+		int result = 0;
+		for (final Plant plant : plants.getPlants()) {
+			if (plant.getPrevalence(terrain) != null) {
+				result += ZoobotanicalUtil.getDifficulty(plant, terrain);
+			}
+		}
+		return result;
+	}
+
+	@Benchmark
+	public int isAvailable() {
+		int result = 0;
+		for (final Plant plant : plants.getPlants()) {
+			if (ZoobotanicalUtil.isAvailable(plant, harvestTime, terrain, location)) {
+				++result;
+			}
+		}
+		return result;
+	}
+
+	@Benchmark
+	public long[] indexedAvailability() {
+		return plants.getIndex().getAvailable(harvestTime, terrain, location);
+	}
+
+	@Benchmark
+	public long[] search() {
+		return search.find("blätter", CatalogSearch.Field.NAME, CatalogSearch.Field.NOTES);
+	}
+
+	/**
+	 * The uncached path of updating the plant list of the controller: availability, search and a single predicate change
+	 */
+	@Benchmark
+	public int updateAvailablePlants() {
+		final long[] matches = search.find(toggle ? "kraut" : "kraut 0", CatalogSearch.Field.NAME);
+		final long[] visible = uncached.getVisible(harvestTime, terrain, location, matches);
+		toggle = !toggle;
+		availablePlants.setPredicate(plant -> CatalogIndex.contains(visible, plant.getOrdinal()));
+		return availablePlants.size();
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.scene.control.Label;
+import javafx.scene.paint.Paint;
+
+/**
+ * The styling of plant names by their types, as done for every cell of the plant list
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlantStyleBenchmark {
+
+	@Param({ BenchmarkData.REAL, "10000" })
+	public String dataset;
+
+	private PlantCatalog plants;
+	private Label label;
+	private int next;
+
+	@Setup
+	public void setup() {
+		plants = BenchmarkData.createCatalog(dataset);
+		BenchmarkData.startToolkit();
+		label = new Label();
+	}
+
+	@Benchmark
+	public Paint setPlantNameType() {
+		final Plant plant = plants.getPlants().get(next);
+		next = (next + 1) % plants.size();
+		ZoobotanicalUtil.setPlantNameType(label, plant);
+		return label.getTextFill();
+	}
+}
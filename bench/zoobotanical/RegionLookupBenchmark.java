@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The lookup of the regions at a location picked on the map
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RegionLookupBenchmark {
+
+	private static final int POINTS = 4096;
+
+	@Param({ BenchmarkData.REAL, "500" })
+	public String regions;
+
+	private RegionOutlines outlines;
+	private final double[] points = new double[POINTS * 2];
+	private int next;
+
+	@Setup
+	public void setup() {
+		outlines = BenchmarkData.createRegions(regions);
+		final SplittableRandom random = new SplittableRandom(42);
+		for (int i = 0; i < POINTS; ++i) {
+			points[i * 2] = random.nextDouble(outlines.getWidth());
+			points[i * 2 + 1] = random.nextDouble(outlines.getHeight());
+		}
+	}
+
+	@Benchmark
+	public BitSet regionsAt() {
+		final int point = next;
+		next = (next + 1) % POINTS;
+		return outlines.regionsAt(points[point * 2], points[point * 2 + 1]);
+	}
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.text.CollationKey;
+import java.util.BitSet;
+import java.util.List;
+
+import jsonant.value.JSONObject;
+
+/**
+ * An immutable, precompiled view of an animal from data/Tiere
+ */
+public final class Animal extends CatalogEntry {
+
+	Animal(final String name, final int ordinal, final CollationKey sortKey, final JSONObject data, final int months, final List<String> typeNames,
+			final byte[] prevalence, final BitSet regions, final String notes) {
+		super(name, ordinal, sortKey, data, months, 0, typeNames, prevalence, regions, notes);
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.List;
+
+import jsonant.value.JSONArray;
+import jsonant.value.JSONObject;
+
+/**
+ * Compiles the animals from data/Tiere into {@link Animal}s. Animals without "Monate" can be encountered all year.
+ */
+public class AnimalCatalog extends Catalog<Animal> {
+
+	public AnimalCatalog(final JSONObject data, final List<String> regions) {
+		super(data, regions, AnimalCatalog::compile);
+	}
+
+	private static Animal compile(final Ordinals ordinals, final String name, final int ordinal, final JSONObject animal) {
+		final JSONArray types = animal.getArrOrDefault("Typ", null);
+		return new Animal(name, ordinal, ordinals.getSortKey(name), animal, ordinals.compileMonths(animal.getArrOrDefault("Monate", null)),
+				types == null ? List.of() : types.getStrings(), ordinals.compilePrevalence(animal.getObjOrDefault("Verbreitung", null)),
+				ordinals.compileRegions(animal.getArrOrDefault("Gebiet", null)), animal.getString("Anmerkungen"));
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import dsa41basis.util.DSAUtil;
+import dsatool.util.ErrorLogger;
+import jsonant.value.JSONArray;
+import jsonant.value.JSONObject;
+
+/**
+ * Compiles a dataset into {@link CatalogEntry}s and holds the indexes and caches shared by all views of it.
+ * Subclasses only compile the fields specific to their entries, the terrains, months and regions are replaced by ordinals here.
+ */
+public abstract class Catalog<E extends CatalogEntry> {
+
+	/**
+	 * Compiles a single entry, only the helpers of the given {@link Ordinals} may be used, as the catalog is still under construction
+	 */
+	@FunctionalInterface
+	protected interface EntryCompiler<E extends CatalogEntry> {
+		E compile(Ordinals ordinals, String name, int ordinal, JSONObject entry);
+	}
+
+	/**
+	 * Replaces the terrains, months and regions of a dataset by ordinals
+	 */
+	protected static final class Ordinals {
+
+		private final List<String> terrains;
+		private final Map<String, Integer> terrainOrdinals = new HashMap<>();
+		private final Map<String, Integer> monthOrdinals = new HashMap<>();
+		private final List<String> regions;
+		private final Map<String, Integer> regionOrdinals = new HashMap<>();
+		private final Collator collator = Collator.getInstance(Locale.GERMAN);
+
+		private Ordinals(final JSONObject data, final List<String> regions) {
+			terrains = new ArrayList<>(ZoobotanicalUtil.terrains);
+			terrains.add("Sonstiges Gelände");
+			for (final String name : data.keySet()) {
+				final JSONObject prevalence = data.getObj(name).getObjOrDefault("Verbreitung", null);
+				if (prevalence != null) {
+					for (final String terrain : prevalence.keySet()) {
+						if (!terrains.contains(terrain)) {
+							terrains.add(terrain);
+						}
+					}
+				}
+			}
+			for (int i = 0; i < terrains.size(); ++i) {
+				terrainOrdinals.put(terrains.get(i), i);
+			}
+
+			for (int i = 0; i < DSAUtil.months.length; ++i) {
+				monthOrdinals.put(DSAUtil.months[i], i);
+			}
+
+			this.regions = List.copyOf(regions);
+			for (int i = 0; i < regions.size(); ++i) {
+				regionOrdinals.put(regions.get(i), i);
+			}
+		}
+
+		/**
+		 * Returns the months as a bitmask over their ordinals, all months if none are given
+		 */
+		public int compileMonths(final JSONArray months) {
+			if (months == null) return -1;
+			int result = 0;
+			for (final String monthName : months.getStrings()) {
+				final Integer month = monthOrdinals.get(monthName);
+				if (month != null) {
+					result |= 1 << month;
+				}
+			}
+			return result;
+		}
+
+		public byte[] compilePrevalence(final JSONObject prevalence) {
+			final byte[] result = new byte[terrains.size()];
+			if (prevalence != null) {
+				for (final String terrain : prevalence.keySet()) {
+					result[terrainOrdinals.get(terrain)] = Prevalence.of(prevalence.getString(terrain)).toByte();
+				}
+			}
+			return result;
+		}
+
+		public BitSet compileRegions(final JSONArray regionNames) {
+			final BitSet result = new BitSet(regions.size());
+			if (regionNames != null) {
+				for (final String region : regionNames.getStrings()) {
+					final Integer regionOrdinal = regionOrdinals.get(region);
+					if (regionOrdinal == null) {
+						ErrorLogger.log("Unbekanntes Gebiet \"" + region + "\"");
+					} else {
+						result.set(regionOrdinal);
+					}
+				}
+			}
+			return result;
+		}
+
+		public CollationKey getSortKey(final String name) {
+			return collator.getCollationKey(name);
+		}
+	}
+
+	private final List<E> entries;
+	private final Map<String, E> entriesByName;
+	private final CatalogIndex index;
+	private CatalogAvailability availability;
+	private CatalogSearch search;
+
+	private final Ordinals ordinals;
+
+	protected Catalog(final JSONObject data, final List<String> regions, final EntryCompiler<E> compiler) {
+		ordinals = new Ordinals(data, regions);
+
+		final List<E> compiled = new ArrayList<>(data.size());
+		entriesByName = new HashMap<>(data.size());
+		for (final String name : data.keySet()) {
+			final E entry = compiler.compile(ordinals, name, compiled.size(), data.getObj(name));
+			compiled.add(entry);
+			entriesByName.put(entry.getName(), entry);
+		}
+		entries = List.copyOf(compiled);
+
+		index = new CatalogIndex(entries, ordinals.terrains.size(), ordinals.regions.size());
+	}
+
+	public synchronized CatalogAvailability getAvailability() {
+		if (availability == null) {
+			availability = new CatalogAvailability(index, 32);
+		}
+		return availability;
+	}
+
+	public List<E> getEntries() {
+		return entries;
+	}
+
+	public E getEntry(final String name) {
+		return entriesByName.get(name);
+	}
+
+	public CatalogIndex getIndex() {
+		return index;
+	}
+
+	public int getMonthOrdinal(final String month) {
+		return month == null ? -1 : ordinals.monthOrdinals.getOrDefault(month, -1);
+	}
+
+	public String getRegion(final int ordinal) {
+		return ordinals.regions.get(ordinal);
+	}
+
+	public int getRegionCount() {
+		return ordinals.regions.size();
+	}
+
+	public synchronized CatalogSearch getSearch() {
+		if (search == null) {
+			search = new CatalogSearch(this);
+		}
+		return search;
+	}
+
+	public String getTerrain(final int ordinal) {
+		return ordinals.terrains.get(ordinal);
+	}
+
+	public int getTerrainCount() {
+		return ordinals.terrains.size();
+	}
+
+	public int getTerrainOrdinal(final String terrain) {
+		return ordinals.terrainOrdinals.getOrDefault(terrain, -1);
+	}
+
+	public List<String> getTerrains(final CatalogEntry entry) {
+		final List<String> result = new ArrayList<>();
+		for (int i = 0; i < ordinals.terrains.size(); ++i) {
+			if (entry.getPrevalence(i) != null) {
+				result.add(ordinals.terrains.get(i));
+			}
+		}
+		return result;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+}
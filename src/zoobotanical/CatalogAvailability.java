@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Memoizes the entries available for a combination of month, terrain and regions at the selected location
+ */
+public class CatalogAvailability {
+
+	private record Key(int month, int terrain, BitSet location) {}
+
+	private final CatalogIndex index;
+	private final Map<Key, long[]> cache;
+
+	public CatalogAvailability(final CatalogIndex index, final int cacheSize) {
+		this.index = index;
+		cache = new LinkedHashMap<>(cacheSize, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, long[]> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	public synchronized void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * Returns the entries available for the given filters
+	 *
+	 * @param month
+	 *            The ordinal of the month or -1 for any month
+	 * @param terrain
+	 *            The ordinal of the terrain
+	 * @param location
+	 *            The regions at the selected location or null if no location is selected
+	 * @return A bitset over the ordinals of the available entries, must not be modified
+	 */
+	public synchronized long[] getAvailable(final int month, final int terrain, final BitSet location) {
+		final Key key = new Key(month, terrain, location == null ? null : (BitSet) location.clone());
+		long[] available = cache.get(key);
+		if (available == null) {
+			available = index.getAvailable(month, terrain, location);
+			cache.put(key, available);
+		}
+		return available;
+	}
+
+	/**
+	 * Returns the entries shown in the list for the given filters and search
+	 *
+	 * @param month
+	 *            The ordinal of the month or -1 for any month
+	 * @param terrain
+	 *            The ordinal of the terrain
+	 * @param location
+	 *            The regions at the selected location or null if no location is selected
+	 * @param matches
+	 *            A bitset over the ordinals of the entries matching the search or null if nothing is searched for
+	 * @return A new bitset over the ordinals of the visible entries
+	 */
+	public long[] getVisible(final int month, final int terrain, final BitSet location, final long[] matches) {
+		final long[] visible = getAvailable(month, terrain, location).clone();
+		if (matches != null) {
+			for (int i = 0; i < visible.length; ++i) {
+				visible[i] &= matches[i];
+			}
+		}
+		return visible;
+	}
+}
@@ -0,0 +1,704 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import org.controlsfx.control.textfield.CustomTextField;
+
+import dsa41basis.util.DSAUtil;
+import dsatool.gui.GUIUtil;
+import dsatool.ui.ReactiveComboBox;
+import dsatool.util.ErrorLogger;
+import dsatool.util.Tuple;
+import dsatool.util.Util;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.geometry.Bounds;
+import javafx.geometry.Side;
+import javafx.scene.Cursor;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.chart.PieChart;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.MultipleSelectionModel;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.control.Tooltip;
+import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.scene.effect.Glow;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Polyline;
+import javafx.util.Duration;
+import zoobotanical.ZoobotanicalMetrics.Operation;
+import zoobotanical.ZoobotanicalMetrics.Timer;
+
+/**
+ * The view of a {@link Catalog}: a filterable list of its entries next to the map, which shows the regions of the selected entry.
+ * Subclasses add the parts specific to their entries.
+ */
+public abstract class CatalogController<E extends CatalogEntry> {
+	@FXML
+	protected Node pane;
+	@FXML
+	private ScrollPane mapPane;
+	@FXML
+	private Group map;
+	@FXML
+	private Group mapBackground;
+	@FXML
+	private Group mapHeatmap;
+	@FXML
+	private Group mapRegions;
+	@FXML
+	private ToggleButton heatmapToggle;
+	@FXML
+	private Polyline route;
+	@FXML
+	private Label locationMarker;
+
+	@FXML
+	private Label listLabel;
+	@FXML
+	private ListView<E> entryList;
+	@FXML
+	private CustomTextField search;
+	@FXML
+	private Label searchOptions;
+	@FXML
+	private ToggleButton sortedToggle;
+
+	@FXML
+	private VBox entryBox;
+	@FXML
+	private Label notesInfo;
+	@FXML
+	protected TableView<String> prevalenceTable;
+	@FXML
+	private TableColumn<String, String> prevalenceTerrainColumn;
+	@FXML
+	private ReactiveComboBox<String> terrainList;
+
+	@FXML
+	private Label monthLabel;
+	@FXML
+	private PieChart entryMonths;
+
+	private final DoubleProperty scale = new SimpleDoubleProperty(1.0);
+	private double scaleMinimum = 0;
+
+	private Tuple<Double, Double> location = new Tuple<>(-1d, -1d);
+	private BitSet locationRegions = null;
+	// The regions of all legs of the route computed so far, the version discards legs of a route that was cleared in the meantime
+	private BitSet routeRegions = null;
+	private int routeVersion = 0;
+	private PieChart.Data month = null;
+	private final String monthLabelText;
+
+	private final ZoobotanicalModel model;
+
+	private MapTiles.View mapTiles = null;
+	private DiversityHeatmap.View heatmap = null;
+	private boolean heatmapLoading = false;
+	private RegionOutlines regions = null;
+	private RegionOverlays regionOverlays = null;
+
+	private final Catalog<E> catalog;
+	private final ObservableList<E> allEntries = FXCollections.observableArrayList();
+	private final FilteredList<E> availableEntries = new FilteredList<>(allEntries);
+
+	private record SearchState(String text, boolean notes, boolean type) {}
+
+	private record FilterState(int month, int terrain, BitSet location, SearchState search) {}
+
+	private final CatalogAvailability availability;
+	private FilterState filterState = null;
+	private long[] visibleEntries = null;
+
+	private final CatalogSearch catalogSearch;
+	private final PauseTransition searchDelay = new PauseTransition(Duration.millis(150));
+	private final CheckMenuItem searchNotes = new CheckMenuItem("Anmerkungen durchsuchen");
+	private final CheckMenuItem searchType = new CheckMenuItem("Typ durchsuchen");
+	private SearchState searchState = null;
+	private long[] searchMatches = null;
+
+	protected final ReadOnlyObjectProperty<E> selectedEntry;
+
+	protected final ReadOnlyObjectProperty<String> selectedTerrain;
+
+	/**
+	 * Loads the view of the given catalog
+	 *
+	 * @param entriesLabel
+	 *            The heading of the list of entries
+	 * @param monthLabelText
+	 *            The label of the selected month
+	 * @param heatmapText
+	 *            The tooltip of the heatmap toggle
+	 */
+	protected CatalogController(final ZoobotanicalModel model, final Catalog<E> catalog, final String entriesLabel, final String monthLabelText,
+			final String heatmapText) {
+		final FXMLLoader fxmlLoader = new FXMLLoader();
+
+		fxmlLoader.setController(this);
+
+		final Timer fxmlTimer = ZoobotanicalMetrics.start(Operation.FXML);
+		try {
+			fxmlLoader.load(CatalogController.class.getResource("Zoobotanical.fxml").openStream());
+		} catch (final Exception e) {
+			ErrorLogger.logError(e);
+		}
+		fxmlTimer.stop();
+
+		setupMap();
+
+		this.model = model;
+		this.catalog = catalog;
+		this.monthLabelText = monthLabelText;
+		availability = catalog.getAvailability();
+		catalogSearch = catalog.getSearch();
+
+		listLabel.setText(entriesLabel);
+		monthLabel.setText(monthLabelText);
+		heatmapToggle.setTooltip(new Tooltip(heatmapText));
+
+		selectedEntry = entryList.getSelectionModel().selectedItemProperty();
+		selectedEntry.addListener((_, _, newV) -> selectEntry(newV));
+		setupEntries();
+
+		terrainList.getItems().setAll(ZoobotanicalUtil.terrains);
+		terrainList.getSelectionModel().select(0);
+		selectedTerrain = terrainList.getSelectionModel().selectedItemProperty();
+		selectedTerrain.addListener((_, _, _) -> updateAvailableEntries());
+
+		map.setCursor(Cursor.WAIT);
+		model.getMapTiles().thenAcceptAsync(this::setMapTiles, Platform::runLater).exceptionally(e -> {
+			ErrorLogger.logError(e);
+			return null;
+		});
+		model.getRegions().thenApply(RegionSnapshot.Regions::outlines).thenAcceptAsync(this::setRegions, Platform::runLater).exceptionally(e -> {
+			ErrorLogger.logError(e);
+			return null;
+		});
+	}
+
+	public Node getRoot() {
+		return pane;
+	}
+
+	/**
+	 * Called after the selected month, terrain, location or search changed
+	 */
+	protected void filterChanged() {}
+
+	/**
+	 * Returns the regions at the selected location or along the route
+	 *
+	 * @return The ordinals of the regions or null if no location is selected
+	 */
+	protected BitSet getLocationRegions() {
+		return locationRegions;
+	}
+
+	protected int getMonth() {
+		return month == null ? -1 : catalog.getMonthOrdinal(month.getName());
+	}
+
+	public void selectMonth(final PieChart.Data selected) {
+		month = selected;
+		entryMonths.getData().forEach(other -> {
+			if (other != selected) {
+				other.getNode().setEffect(null);
+			}
+		});
+		monthLabel.setText(monthLabelText + (selected != null ? selected.getName() : ""));
+		updateAvailableEntries();
+	}
+
+	private void selectLocation(final Tuple<Double, Double> newLocation) {
+		final double x = newLocation._1;
+		final double y = newLocation._2;
+
+		location = newLocation;
+		clearRoute();
+
+		if (regions != null) {
+			final Timer timer = ZoobotanicalMetrics.start(Operation.LOCATION);
+			locationRegions = x >= 0 ? regions.regionsAt(x, y) : null;
+			timer.stop(locationRegions == null ? 0 : locationRegions.cardinality(), 0);
+		}
+
+		updateAvailableEntries();
+
+		positionLocationMarker();
+	}
+
+	/**
+	 * Extends the route to the given point. The regions along the new leg are determined in the background, the list is updated as soon
+	 * as a leg adds regions, so long routes fill in leg by leg.
+	 */
+	private void addWaypoint(final double x, final double y) {
+		if (location._1 >= 0) {
+			location = new Tuple<>(-1d, -1d);
+			positionLocationMarker();
+		}
+
+		final ObservableList<Double> points = route.getPoints();
+		final double fromX = points.isEmpty() ? x : points.get(points.size() - 2);
+		final double fromY = points.isEmpty() ? y : points.getLast();
+		points.addAll(x, y);
+
+		final int version = routeVersion;
+		final RegionOutlines outlines = regions;
+		CompletableFuture.supplyAsync(() -> {
+			final Timer timer = ZoobotanicalMetrics.start(Operation.ROUTE_LEG);
+			final BitSet leg = outlines.regionsAlong(fromX, fromY, x, y);
+			timer.stop(leg.cardinality(), 0);
+			return leg;
+		}).thenAcceptAsync(leg -> addRouteLeg(version, leg), Platform::runLater).exceptionally(e -> {
+			ErrorLogger.logError(e);
+			return null;
+		});
+	}
+
+	private void addRouteLeg(final int version, final BitSet leg) {
+		if (version != routeVersion) return;
+		if (routeRegions == null) {
+			routeRegions = new BitSet();
+		} else {
+			final BitSet added = (BitSet) leg.clone();
+			added.andNot(routeRegions);
+			if (added.isEmpty()) return;
+		}
+		routeRegions.or(leg);
+		// A copy, as the filter state keeps the location to compare it with the next one
+		locationRegions = (BitSet) routeRegions.clone();
+		updateAvailableEntries();
+	}
+
+	private void clearRoute() {
+		++routeVersion;
+		routeRegions = null;
+		route.getPoints().clear();
+	}
+
+	private void positionLocationMarker() {
+		final double x = location._1;
+		final double y = location._2;
+
+		final Bounds mapBounds = map.getBoundsInLocal();
+		locationMarker.relocate((x - mapBounds.getWidth() / 2) * scale.get() + mapBounds.getWidth() / 2 - 15,
+				(y - mapBounds.getHeight() / 2) * scale.get() + mapBounds.getHeight() / 2 - 15);
+
+		locationMarker.setVisible(x >= 0);
+	}
+
+	private void selectEntry(final E entry) {
+		entryBox.setVisible(entry != null);
+		entryBox.setManaged(entry != null);
+		mapRegions.getChildren().clear();
+		if (entry == null) {
+			prevalenceTable.getItems().clear();
+			entryMonths.getData().forEach(month -> month.getNode().setOpacity(1));
+			notesInfo.setVisible(false);
+		} else {
+			final List<String> prevalence = catalog.getTerrains(entry);
+			prevalenceTable.getItems().setAll(prevalence);
+			prevalenceTable.setVisible(!prevalence.isEmpty());
+			prevalenceTable.setManaged(!prevalence.isEmpty());
+
+			if (regions != null) {
+				mapRegions.getChildren().add(regionOverlays.getOverlay(entry.getRegions()));
+			}
+
+			entryMonths.getData().forEach(month -> month.getNode().setOpacity(entry.isInMonth(catalog.getMonthOrdinal(month.getName())) ? 1 : 0.075));
+
+			final Tooltip notes = ZoobotanicalUtil.getNotesTooltip(entry);
+			notesInfo.setTooltip(notes);
+			notesInfo.setVisible(notes != null);
+
+			showEntry(entry);
+
+			entryList.scrollTo(entry);
+		}
+	}
+
+	/**
+	 * Shows the details specific to the entries of the catalog
+	 */
+	protected void showEntry(final E entry) {}
+
+	private void setMapTiles(final MapTiles tiles) {
+		mapTiles = tiles.createView();
+		mapBackground.getChildren().setAll(mapTiles.getNode());
+
+		final double mapWidth = tiles.getWidth();
+		final double mapHeight = tiles.getHeight();
+
+		mapPane.maxWidthProperty().bind(scale.multiply(mapWidth));
+
+		if (mapPane.getHeight() > 0) {
+			setInitialScale(mapWidth, mapHeight);
+		} else {
+			@SuppressWarnings("unchecked")
+			final ChangeListener<? super Number> setInitialScale[] = new ChangeListener[1];
+			setInitialScale[0] = (_, _, _) -> {
+				setInitialScale(mapWidth, mapHeight);
+				mapPane.heightProperty().removeListener(setInitialScale[0]);
+			};
+			mapPane.heightProperty().addListener(setInitialScale[0]);
+		}
+
+		updateMapTiles();
+	}
+
+	private void setInitialScale(final double mapWidth, final double mapHeight) {
+		final double initialScale = Math.max(mapPane.getWidth() / mapWidth, mapPane.getHeight() / mapHeight);
+		scaleMinimum = initialScale;
+		scale.set(initialScale);
+
+		mapPane.setHvalue(0.5);
+		mapPane.setVvalue(0.5);
+	}
+
+	private void setRegions(final RegionOutlines regions) {
+		this.regions = regions;
+		regionOverlays = new RegionOverlays(regions, Color.TURQUOISE, 16);
+		map.setCursor(null);
+
+		if (selectedEntry.get() != null) {
+			selectEntry(selectedEntry.get());
+		}
+	}
+
+	private void setupMap() {
+		map.scaleXProperty().bind(scale);
+		map.scaleYProperty().bind(scale);
+
+		final ChangeListener<Object> viewportListener = (_, _, _) -> {
+			updateMapTiles();
+			updateHeatmap();
+		};
+		scale.addListener(viewportListener);
+		mapPane.hvalueProperty().addListener(viewportListener);
+		mapPane.vvalueProperty().addListener(viewportListener);
+		mapPane.viewportBoundsProperty().addListener(viewportListener);
+
+		mapPane.addEventFilter(ScrollEvent.ANY, e -> {
+			double scaleFactor = Math.exp(e.getDeltaY() * 0.005);
+			final double newScale = Math.min(Math.max(scale.get() * scaleFactor, scaleMinimum), 10);
+			scaleFactor = newScale / scale.get();
+
+			final Bounds viewport = mapPane.getViewportBounds();
+			final Bounds mapBounds = map.getBoundsInParent();
+
+			final double relativeX = (mapBounds.getWidth() - viewport.getWidth()) * mapPane.getHvalue() + e.getX();
+			final double relativeY = (mapBounds.getHeight() - viewport.getHeight()) * mapPane.getVvalue() + e.getY();
+
+			scale.set(newScale);
+
+			mapPane.setHvalue((relativeX * scaleFactor - e.getX()) / (mapBounds.getWidth() * scaleFactor - viewport.getWidth()));
+			mapPane.setVvalue((relativeY * scaleFactor - e.getY()) / (mapBounds.getHeight() * scaleFactor - viewport.getHeight()));
+
+			positionLocationMarker();
+
+			e.consume();
+		});
+
+		// Shift and click adds a waypoint to the route, dragging with shift held draws it freehand
+		route.strokeWidthProperty().bind(Bindings.divide(3, scale));
+		map.addEventHandler(MouseEvent.MOUSE_PRESSED, e -> {
+			if (regions != null && e.isShiftDown() && e.getButton() == MouseButton.PRIMARY) {
+				addWaypoint(e.getX(), e.getY());
+				e.consume();
+			}
+		});
+		map.addEventHandler(MouseEvent.MOUSE_DRAGGED, e -> {
+			if (regions != null && e.isShiftDown() && e.isPrimaryButtonDown()) {
+				final List<Double> points = route.getPoints();
+				// Waypoints are placed a few screen pixels apart, so the route stays smooth at every zoom level
+				if (points.isEmpty() || Math.hypot(e.getX() - points.get(points.size() - 2), e.getY() - points.getLast()) * scale.get() >= 4) {
+					addWaypoint(e.getX(), e.getY());
+				}
+				e.consume();
+			}
+		});
+
+		map.setOnMouseClicked(e -> {
+			if (regions == null || e.isShiftDown()) return;
+			if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2) {
+				selectLocation(new Tuple<>(e.getX(), e.getY()));
+			} else if (e.getButton() == MouseButton.SECONDARY && e.getClickCount() == 2) {
+				selectLocation(new Tuple<>(-1d, -1d));
+			}
+		});
+	}
+
+	private void setupEntries() {
+		allEntries.setAll(catalog.getEntries());
+
+		entryList.setCellFactory(list -> {
+			final ListCell<E> cell = new ListCell<>() {
+				private E referenced = null;
+
+				@Override
+				public void updateItem(final E item, final boolean empty) {
+					super.updateItem(item, empty);
+					if (empty) {
+						setText(null);
+						setTooltip(null);
+						setGraphic(null);
+						referenced = null;
+					} else {
+						updateCell(this, item);
+
+						// Cells are updated for every scrolled row and selection change, the reference only depends on the entry
+						if (item != referenced) {
+							Util.addReference(this, item.getData(), 35, entryList.widthProperty());
+							referenced = item;
+						}
+					}
+				}
+			};
+			cell.addEventHandler(MouseEvent.MOUSE_PRESSED, event -> {
+				list.requestFocus();
+				final MultipleSelectionModel<E> selectionModel = list.getSelectionModel();
+				if (cell.isEmpty() || event.getButton() == MouseButton.SECONDARY) {
+					selectionModel.clearSelection();
+					event.consume();
+				} else if (event.getButton() == MouseButton.PRIMARY) {
+					final int index = cell.getIndex();
+					if (selectionModel.getSelectedIndices().contains(index)) {
+						selectionModel.clearSelection(index);
+					} else {
+						selectionModel.select(index);
+					}
+					event.consume();
+				}
+			});
+			return cell;
+		});
+
+		final SortedList<E> sortedEntries = new SortedList<>(availableEntries, CatalogEntry.DATA_ORDER);
+		sortedToggle.selectedProperty().addListener((_, _, newV) -> {
+			sortedEntries.setComparator(newV ? CatalogEntry.ALPHABETICAL : CatalogEntry.DATA_ORDER);
+		});
+		entryList.setItems(sortedEntries);
+
+		searchDelay.setOnFinished(_ -> updateAvailableEntries());
+		search.textProperty().addListener((_, _, _) -> {
+			searchDelay.playFromStart();
+		});
+		searchNotes.setOnAction(_ -> updateAvailableEntries());
+		searchType.setOnAction(_ -> updateAvailableEntries());
+		final ContextMenu searchMenu = new ContextMenu(searchNotes, searchType);
+		searchOptions.setOnMouseClicked(_ -> searchMenu.show(searchOptions, Side.BOTTOM, 0, 0));
+
+		entryBox.setVisible(false);
+		entryBox.setManaged(false);
+
+		GUIUtil.autosizeTable(prevalenceTable);
+
+		prevalenceTerrainColumn.setCellFactory(_ -> new TextFieldTableCell<String, String>() {
+			@Override
+			public void updateItem(final String item, final boolean empty) {
+				super.updateItem(item, empty);
+				if (empty) {
+					setText(null);
+					setStyle("");
+					setTooltip(null);
+				} else {
+					setText(item);
+					final E entry = selectedEntry.get();
+					final Prevalence prevalence = entry.getPrevalence(catalog.getTerrainOrdinal(item));
+					setStyle("-fx-text-fill: " + prevalence.color);
+					setTooltip(new Tooltip(prevalence == Prevalence.UNKNOWN ? entry.getData().getObj("Verbreitung").getString(item) : prevalence.name));
+				}
+			}
+		});
+		prevalenceTerrainColumn.setCellValueFactory(e -> {
+			return new SimpleStringProperty(e.getValue());
+		});
+
+		notesInfo.setVisible(false);
+
+		entryMonths.getData().addAll(Stream.of(DSAUtil.months).map(month -> new PieChart.Data(month, "Namenloser".equals(month) ? 5 : 30)).toList());
+		entryMonths.getStylesheets().add("""
+				data:text/css,
+				.chart-pie {
+					-fx-background-insets: -0.1;
+					-fx-border-width: 0;
+				}
+				""");
+		entryMonths.getData().forEach(month -> {
+			final Node node = month.getNode();
+			node.setStyle("-fx-pie-color: " + DSAUtil.monthColors.get(month.getName()) + ";");
+
+			Tooltip.install(node, new Tooltip(month.getName()));
+
+			node.addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
+				if (node.getEffect() != null || e.getButton() == MouseButton.SECONDARY) {
+					selectMonth(null);
+				} else if (node.getOpacity() == 1.0 && e.getButton() == MouseButton.PRIMARY) {
+					selectMonth(month);
+					node.setEffect(new Glow(1.0));
+				}
+			});
+		});
+	}
+
+	@FXML
+	private void showDiagnostics() {
+		new DiagnosticsDialog(pane.getScene().getWindow());
+	}
+
+	@FXML
+	private void toggleHeatmap() {
+		final boolean selected = heatmapToggle.isSelected();
+		mapHeatmap.setVisible(selected);
+		if (selected && heatmap == null) {
+			if (heatmapLoading) return;
+			heatmapLoading = true;
+			map.setCursor(Cursor.WAIT);
+			model.getHeatmap(catalog).thenAcceptAsync(loaded -> {
+				heatmap = loaded.createView();
+				mapHeatmap.getChildren().setAll(heatmap.getNode());
+				map.setCursor(null);
+				updateHeatmap();
+			}, Platform::runLater).exceptionally(e -> {
+				ErrorLogger.logError(e);
+				// Deselected, so toggling again retries loading the heatmap
+				Platform.runLater(() -> {
+					heatmapLoading = false;
+					map.setCursor(null);
+					heatmapToggle.setSelected(false);
+					mapHeatmap.setVisible(false);
+				});
+				return null;
+			});
+		} else {
+			updateHeatmap();
+		}
+	}
+
+	@FXML
+	private void toggleSorted() {
+		sortedToggle.getParent().requestFocus();
+	}
+
+	/**
+	 * Returns the visible part of the map in map coordinates
+	 */
+	private Bounds getVisibleMap() {
+		return map.sceneToLocal(mapPane.localToScene(mapPane.getLayoutBounds()));
+	}
+
+	private long[] getSearchMatches(final SearchState state) {
+		if (state.text().isBlank()) return null;
+		if (!state.equals(searchState)) {
+			final List<CatalogSearch.Field> fields = new ArrayList<>(3);
+			fields.add(CatalogSearch.Field.NAME);
+			if (state.notes()) {
+				fields.add(CatalogSearch.Field.NOTES);
+			}
+			if (state.type()) {
+				fields.add(CatalogSearch.Field.TYPE);
+			}
+			searchMatches = catalogSearch.find(state.text(), fields.toArray(new CatalogSearch.Field[fields.size()]));
+			searchState = state;
+		}
+		return searchMatches;
+	}
+
+	private void updateHeatmap() {
+		if (heatmap == null || !heatmapToggle.isSelected()) return;
+		heatmap.show(getMonth(), catalog.getTerrainOrdinal(selectedTerrain.get()), getVisibleMap());
+	}
+
+	/**
+	 * Shows the given entry in a list cell
+	 */
+	protected void updateCell(final ListCell<E> cell, final E entry) {
+		cell.setText(entry.getName());
+	}
+
+	private void updateMapTiles() {
+		if (mapTiles == null) return;
+		mapTiles.show(getVisibleMap(), scale.get());
+	}
+
+	private void updateAvailableEntries() {
+		searchDelay.stop();
+
+		final FilterState state = new FilterState(getMonth(), catalog.getTerrainOrdinal(selectedTerrain.get()), locationRegions,
+				new SearchState(search.getText(), searchNotes.isSelected(), searchType.isSelected()));
+		if (state.equals(filterState)) return;
+		filterState = state;
+
+		updateHeatmap();
+
+		final Timer timer = ZoobotanicalMetrics.start(Operation.AVAILABLE_ENTRIES);
+		final long[] visible = availability.getVisible(state.month(), state.terrain(), state.location(), getSearchMatches(state.search()));
+
+		// The new visible set is published with a single predicate swap, so the list only receives one change
+		final E selected = selectedEntry.get();
+		if (selected != null && !CatalogIndex.contains(visible, selected.getOrdinal())) {
+			entryList.getSelectionModel().clearSelection();
+		}
+		availableEntries.setPredicate(entry -> CatalogIndex.contains(visible, entry.getOrdinal()));
+		if (selected != null && selectedEntry.get() != selected && CatalogIndex.contains(visible, selected.getOrdinal())) {
+			entryList.getSelectionModel().select(selected);
+		}
+
+		// Without a previous pass, all entries were shown
+		int changed = visibleEntries == null ? catalog.size() - CatalogIndex.cardinality(visible) : 0;
+		if (visibleEntries != null) {
+			for (int i = 0; i < visible.length; ++i) {
+				changed += Long.bitCount(visible[i] ^ visibleEntries[i]);
+			}
+		}
+		visibleEntries = visible;
+		timer.stop(catalog.size(), changed);
+
+		filterChanged();
+	}
+}
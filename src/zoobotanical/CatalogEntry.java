@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.text.CollationKey;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+import jsonant.value.JSONObject;
+
+/**
+ * An immutable, precompiled entry of a {@link Catalog}, with months, terrains and regions replaced by ordinals
+ */
+public abstract class CatalogEntry {
+
+	public static final Comparator<CatalogEntry> ALPHABETICAL = (left, right) -> left.sortKey.compareTo(right.sortKey);
+	public static final Comparator<CatalogEntry> DATA_ORDER = (left, right) -> Integer.compare(left.ordinal, right.ordinal);
+
+	private final String name;
+	private final int ordinal;
+	private final CollationKey sortKey;
+	private final JSONObject data;
+	private final int months;
+	private final int types;
+	private final List<String> typeNames;
+	private final byte[] prevalence;
+	private final BitSet regions;
+	private final String notes;
+
+	/**
+	 * @param types
+	 *            The known types as a bitmask, the names of all types are kept in typeNames
+	 */
+	protected CatalogEntry(final String name, final int ordinal, final CollationKey sortKey, final JSONObject data, final int months, final int types,
+			final List<String> typeNames, final byte[] prevalence, final BitSet regions, final String notes) {
+		this.name = name.intern();
+		this.ordinal = ordinal;
+		this.sortKey = sortKey;
+		this.data = data;
+		this.months = months;
+		this.types = types;
+		this.typeNames = List.copyOf(typeNames);
+		this.prevalence = prevalence;
+		this.regions = regions;
+		this.notes = notes;
+	}
+
+	public JSONObject getData() {
+		return data;
+	}
+
+	public int getMonths() {
+		return months;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getNotes() {
+		return notes;
+	}
+
+	public int getOrdinal() {
+		return ordinal;
+	}
+
+	public Prevalence getPrevalence(final int terrain) {
+		return terrain >= 0 && terrain < prevalence.length ? Prevalence.ofByte(prevalence[terrain]) : null;
+	}
+
+	public BitSet getRegions() {
+		return (BitSet) regions.clone();
+	}
+
+	public List<String> getTypeNames() {
+		return typeNames;
+	}
+
+	public int getTypes() {
+		return types;
+	}
+
+	public boolean hasPrevalence() {
+		for (final byte terrain : prevalence) {
+			if (terrain != 0) return true;
+		}
+		return false;
+	}
+
+	public boolean hasRegions() {
+		return !regions.isEmpty();
+	}
+
+	public boolean isInMonth(final int month) {
+		return (months & 1 << month) != 0;
+	}
+
+	public boolean isInRegions(final BitSet location) {
+		return regions.intersects(location);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
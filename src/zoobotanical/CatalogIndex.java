@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import dsa41basis.util.DSAUtil;
+
+/**
+ * Inverted indexes from months, terrains, regions and types to bitsets over the entry ordinals of a {@link Catalog}
+ */
+public class CatalogIndex {
+
+	public static int cardinality(final long[] bits) {
+		int result = 0;
+		for (final long word : bits) {
+			result += Long.bitCount(word);
+		}
+		return result;
+	}
+
+	public static boolean contains(final long[] bits, final int index) {
+		return (bits[index >>> 6] & 1L << index) != 0;
+	}
+
+	public static int nextSetBit(final long[] bits, final int fromIndex) {
+		int word = fromIndex >>> 6;
+		if (word >= bits.length) return -1;
+		long current = bits[word] & -1L << fromIndex;
+		while (current == 0) {
+			if (++word == bits.length) return -1;
+			current = bits[word];
+		}
+		return word * 64 + Long.numberOfTrailingZeros(current);
+	}
+
+	private static void set(final long[] bits, final int index) {
+		bits[index >>> 6] |= 1L << index;
+	}
+
+	private final int size;
+	private final long[] all;
+	private final long[] located;
+	private final long[][] months;
+	private final long[][] terrains;
+	private final long[][] regions;
+	private final long[][] types;
+
+	public CatalogIndex(final List<? extends CatalogEntry> entries, final int terrainCount, final int regionCount) {
+		size = entries.size();
+		final int words = size + 63 >>> 6;
+		all = new long[words];
+		located = new long[words];
+		months = new long[DSAUtil.months.length][words];
+		terrains = new long[terrainCount][words];
+		regions = new long[regionCount][words];
+		int allTypes = 0;
+		for (final CatalogEntry entry : entries) {
+			allTypes |= entry.getTypes();
+		}
+		types = new long[Integer.SIZE - Integer.numberOfLeadingZeros(allTypes)][words];
+
+		for (final CatalogEntry entry : entries) {
+			final int ordinal = entry.getOrdinal();
+			set(all, ordinal);
+			if (entry.hasRegions()) {
+				set(located, ordinal);
+			}
+			for (int month = 0; month < months.length; ++month) {
+				if (entry.isInMonth(month)) {
+					set(months[month], ordinal);
+				}
+			}
+			for (int terrain = 0; terrain < terrains.length; ++terrain) {
+				if (entry.getPrevalence(terrain) != null) {
+					set(terrains[terrain], ordinal);
+				}
+			}
+			final BitSet entryRegions = entry.getRegions();
+			for (int region = entryRegions.nextSetBit(0); region >= 0; region = entryRegions.nextSetBit(region + 1)) {
+				set(regions[region], ordinal);
+			}
+			final int entryTypes = entry.getTypes();
+			for (int type = 0; type < types.length; ++type) {
+				if ((entryTypes & 1 << type) != 0) {
+					set(types[type], ordinal);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the entries available for the given filters, following the rules of
+	 * {@link ZoobotanicalUtil#isAvailable(CatalogEntry, int, int, BitSet)}
+	 *
+	 * @param month
+	 *            The ordinal of the month or -1 for any month
+	 * @param terrain
+	 *            The ordinal of the terrain
+	 * @param location
+	 *            The regions at the selected location or null if no location is selected
+	 * @return A new bitset over the entry ordinals
+	 */
+	public long[] getAvailable(final int month, final int terrain, final BitSet location) {
+		final long[] result;
+		if (location == null) {
+			result = located.clone();
+		} else {
+			result = new long[all.length];
+			for (int region = location.nextSetBit(0); region >= 0 && region < regions.length; region = location.nextSetBit(region + 1)) {
+				final long[] regionEntries = regions[region];
+				for (int i = 0; i < result.length; ++i) {
+					result[i] |= regionEntries[i];
+				}
+			}
+		}
+
+		if (month >= 0) {
+			final long[] monthEntries = months[month];
+			for (int i = 0; i < result.length; ++i) {
+				result[i] &= monthEntries[i];
+			}
+		}
+
+		if (terrain != ZoobotanicalUtil.ANY_TERRAIN && terrain != ZoobotanicalUtil.OTHER_TERRAIN) {
+			if (terrain < 0) {
+				Arrays.fill(result, 0);
+			} else {
+				final long[] terrainEntries = terrains[terrain];
+				for (int i = 0; i < result.length; ++i) {
+					result[i] &= terrainEntries[i];
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the entries of the given type
+	 *
+	 * @param type
+	 *            The bit of the type in the masks of {@link CatalogEntry#getTypes()}, e.g. the ordinal of a {@link PlantType}
+	 * @return A new bitset over the entry ordinals
+	 */
+	public long[] getEntriesOfType(final int type) {
+		return type < types.length ? types[type].clone() : new long[all.length];
+	}
+
+	public int size() {
+		return size;
+	}
+}
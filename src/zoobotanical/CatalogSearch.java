@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A trigram index over the normalized names, notes and types of the entries in a {@link Catalog}
+ */
+public class CatalogSearch {
+
+	public enum Field {
+		NAME, NOTES, TYPE
+	}
+
+	public static String normalize(final String text) {
+		if (text == null) return "";
+		final StringBuilder result = new StringBuilder(text.length() + 4);
+		for (int i = 0; i < text.length(); ++i) {
+			final char c = text.charAt(i);
+			switch (c) {
+				case 'ä', 'Ä' -> result.append("ae");
+				case 'ö', 'Ö' -> result.append("oe");
+				case 'ü', 'Ü' -> result.append("ue");
+				case 'ß', 'ẞ' -> result.append("ss");
+				default -> result.append(c);
+			}
+		}
+		return Normalizer.normalize(result, Normalizer.Form.NFD).replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+	}
+
+	private static long trigram(final String text, final int index) {
+		return (long) text.charAt(index) << 32 | (long) text.charAt(index + 1) << 16 | text.charAt(index + 2);
+	}
+
+	private final int words;
+	private final String[][] texts;
+
+	// Rare trigrams keep the ascending ordinals of their entries, only frequent ones a bitset over all entries
+	private final List<Map<Long, int[]>> sparseTrigrams;
+	private final List<Map<Long, long[]>> denseTrigrams;
+
+	public CatalogSearch(final Catalog<?> catalog) {
+		final List<? extends CatalogEntry> entries = catalog.getEntries();
+		words = entries.size() + 63 >>> 6;
+		texts = new String[Field.values().length][entries.size()];
+		sparseTrigrams = List.of(new HashMap<>(), new HashMap<>(), new HashMap<>());
+		denseTrigrams = List.of(new HashMap<>(), new HashMap<>(), new HashMap<>());
+
+		for (final CatalogEntry entry : entries) {
+			final int ordinal = entry.getOrdinal();
+			texts[Field.NAME.ordinal()][ordinal] = normalize(entry.getName());
+			texts[Field.NOTES.ordinal()][ordinal] = normalize(entry.getNotes());
+			texts[Field.TYPE.ordinal()][ordinal] = normalize(String.join(", ", entry.getTypeNames()));
+		}
+
+		// A bitset is smaller than the ordinals once more than two entries per word contain the trigram
+		final int denseThreshold = 2 * words;
+		for (final Field field : Field.values()) {
+			final String[] fieldTexts = texts[field.ordinal()];
+
+			// The first element of each list is its size
+			final Map<Long, int[]> postings = new HashMap<>();
+			for (int ordinal = 0; ordinal < fieldTexts.length; ++ordinal) {
+				final String text = fieldTexts[ordinal];
+				for (int i = 0; i + 3 <= text.length(); ++i) {
+					final long trigram = trigram(text, i);
+					int[] list = postings.get(trigram);
+					if (list == null) {
+						list = new int[4];
+						postings.put(trigram, list);
+					} else if (list[list[0]] == ordinal) {
+						continue;
+					}
+					if (list[0] + 1 == list.length) {
+						list = Arrays.copyOf(list, 2 * list.length);
+						postings.put(trigram, list);
+					}
+					list[++list[0]] = ordinal;
+				}
+			}
+
+			final Map<Long, int[]> sparse = sparseTrigrams.get(field.ordinal());
+			final Map<Long, long[]> dense = denseTrigrams.get(field.ordinal());
+			for (final Map.Entry<Long, int[]> posting : postings.entrySet()) {
+				final int[] list = posting.getValue();
+				if (list[0] > denseThreshold) {
+					final long[] bits = new long[words];
+					for (int i = 1; i <= list[0]; ++i) {
+						bits[list[i] >>> 6] |= 1L << list[i];
+					}
+					dense.put(posting.getKey(), bits);
+				} else {
+					sparse.put(posting.getKey(), Arrays.copyOfRange(list, 1, list[0] + 1));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds all entries containing the query in one of the given fields, ignoring case and umlaut spelling
+	 *
+	 * @param query
+	 *            The text to search for
+	 * @param fields
+	 *            The fields to search in
+	 * @return A new bitset over the ordinals of the matching entries
+	 */
+	public long[] find(final String query, final Field... fields) {
+		final String normalized = normalize(query);
+		final long[] result = new long[words];
+		for (final Field field : fields) {
+			final String[] fieldTexts = texts[field.ordinal()];
+			if (normalized.length() < 3) {
+				for (int ordinal = 0; ordinal < fieldTexts.length; ++ordinal) {
+					if (fieldTexts[ordinal].contains(normalized)) {
+						result[ordinal >>> 6] |= 1L << ordinal;
+					}
+				}
+				continue;
+			}
+
+			final Map<Long, int[]> sparse = sparseTrigrams.get(field.ordinal());
+			final Map<Long, long[]> dense = denseTrigrams.get(field.ordinal());
+			final long[] candidates = new long[words];
+			Arrays.fill(candidates, -1L);
+			for (int i = 0; i + 3 <= normalized.length(); ++i) {
+				final long trigram = trigram(normalized, i);
+				final long[] bits = dense.get(trigram);
+				if (bits != null) {
+					for (int word = 0; word < words; ++word) {
+						candidates[word] &= bits[word];
+					}
+					continue;
+				}
+				final int[] ordinals = sparse.get(trigram);
+				if (ordinals == null) {
+					Arrays.fill(candidates, 0);
+					break;
+				}
+				final long[] remaining = new long[words];
+				for (final int ordinal : ordinals) {
+					if (CatalogIndex.contains(candidates, ordinal)) {
+						remaining[ordinal >>> 6] |= 1L << ordinal;
+					}
+				}
+				System.arraycopy(remaining, 0, candidates, 0, words);
+			}
+
+			// Trigrams may match out of order, so the candidates still need to be verified
+			for (int ordinal = CatalogIndex.nextSetBit(candidates, 0); ordinal >= 0 && ordinal < fieldTexts.length; ordinal = CatalogIndex.nextSetBit(candidates,
+					ordinal + 1)) {
+				if (fieldTexts[ordinal].contains(normalized)) {
+					result[ordinal >>> 6] |= 1L << ordinal;
+				}
+			}
+		}
+		return result;
+	}
+}
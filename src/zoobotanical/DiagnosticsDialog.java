@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.io.File;
+import java.io.IOException;
+
+import dsatool.gui.GUIUtil;
+import dsatool.util.ErrorLogger;
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.control.Button;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+/**
+ * Shows the statistics collected by {@link ZoobotanicalMetrics}, so slow operations can be reported without attaching a profiler
+ */
+public final class DiagnosticsDialog {
+	@FXML
+	private VBox root;
+	@FXML
+	private TextArea statistics;
+	@FXML
+	private Button okButton;
+
+	private final Stage stage;
+
+	public DiagnosticsDialog(final Window window) {
+		final FXMLLoader fxmlLoader = new FXMLLoader();
+
+		fxmlLoader.setController(this);
+
+		try {
+			fxmlLoader.load(getClass().getResource("DiagnosticsDialog.fxml").openStream());
+		} catch (final Exception e) {
+			ErrorLogger.logError(e);
+		}
+
+		stage = GUIUtil.setupStage(root, 820, 300, "Diagnose", window, false);
+
+		okButton.setOnAction(_ -> stage.close());
+
+		update();
+		stage.show();
+	}
+
+	@FXML
+	private void reset() {
+		ZoobotanicalMetrics.reset();
+		update();
+	}
+
+	@FXML
+	private void save() {
+		final FileChooser fileChooser = new FileChooser();
+		fileChooser.setTitle("Diagnose speichern");
+		fileChooser.setInitialFileName("zoobotanical-diagnose.txt");
+		fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Textdatei", "*.txt"));
+		final File file = fileChooser.showSaveDialog(stage);
+		if (file != null) {
+			try {
+				ZoobotanicalMetrics.dump(file.toPath());
+			} catch (final IOException e) {
+				ErrorLogger.logError(e);
+			}
+		}
+	}
+
+	@FXML
+	private void update() {
+		statistics.setText(ZoobotanicalMetrics.format());
+	}
+}
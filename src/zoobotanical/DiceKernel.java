@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import jsonant.value.JSONObject;
+
+/**
+ * Rolls the Grundmenge and Haltbarkeit of the plants of a {@link PlantCatalog} from pre-parsed dice.
+ * The rolls are derived from a seed, the name of the plant and the number of plants only, so the same seed always yields the same results,
+ * regardless of the order in which the rolls are made or of other plants added to the data. No roll allocates.
+ */
+public class DiceKernel {
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private static final int AMOUNT = 0;
+	private static final int DURABILITY = 3;
+	private static final int SPEC_SIZE = 6;
+
+	private static long mix(long z) {
+		z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+		return z ^ z >>> 31;
+	}
+
+	/**
+	 * A hash of the name that does not depend on the JVM or the position of the plant in the data, so shared seeds stay reproducible
+	 */
+	private static long nameKey(final String name) {
+		long hash = 0xCBF29CE484222325L;
+		for (int i = 0; i < name.length(); ++i) {
+			hash = (hash ^ name.charAt(i)) * 0x100000001B3L;
+		}
+		return mix(hash);
+	}
+
+	private static void parse(final int[] specs, final int offset, final JSONObject roll) {
+		if (roll == null) {
+			specs[offset] = -1;
+		} else {
+			specs[offset] = roll.getIntOrDefault("Würfel:Anzahl", 0);
+			specs[offset + 1] = roll.getIntOrDefault("Würfel:Typ", 6);
+			specs[offset + 2] = roll.getIntOrDefault("Wert", 0);
+		}
+	}
+
+	// Per plant: number of dice, sides and fixed value of the amount, followed by the same for the durability. A negative number of dice marks a missing roll.
+	private final int[] specs;
+	private final long[] keys;
+
+	public DiceKernel(final PlantCatalog catalog) {
+		specs = new int[catalog.size() * SPEC_SIZE];
+		keys = new long[catalog.size()];
+		for (final Plant plant : catalog.getPlants()) {
+			keys[plant.getOrdinal()] = nameKey(plant.getName());
+			final int offset = plant.getOrdinal() * SPEC_SIZE;
+			parse(specs, offset + AMOUNT, plant.getAmount());
+			parse(specs, offset + DURABILITY, plant.getDurability());
+		}
+	}
+
+	public boolean hasAmount(final int plant) {
+		return specs[plant * SPEC_SIZE + AMOUNT] >= 0;
+	}
+
+	public boolean hasDurability(final int plant) {
+		return specs[plant * SPEC_SIZE + DURABILITY] >= 0;
+	}
+
+	private int roll(final long seed, final int plant, final int spec, final int times) {
+		final int offset = plant * SPEC_SIZE + spec;
+		final int dice = specs[offset];
+		if (dice < 0) return 0;
+		final long sides = specs[offset + 1];
+		long state = mix(seed ^ mix(keys[plant] ^ (long) spec << 32 ^ times));
+		int result = specs[offset + 2] * times;
+		for (int i = dice * times; i > 0; --i) {
+			state += GOLDEN_GAMMA;
+			result += (int) ((mix(state) >>> 32) * sides >>> 32) + 1;
+		}
+		return result;
+	}
+
+	/**
+	 * Rolls the Grundmenge for a number of plants
+	 *
+	 * @param seed
+	 *            The seed
+	 * @param plant
+	 *            The ordinal of the plant
+	 * @param count
+	 *            The number of plants found
+	 * @return The total amount or 0 if the plant has no Grundmenge
+	 */
+	public int rollAmount(final long seed, final int plant, final int count) {
+		return roll(seed, plant, AMOUNT, count);
+	}
+
+	/**
+	 * Rolls the Grundmenge for many plants at once
+	 *
+	 * @param seed
+	 *            The seed
+	 * @param plants
+	 *            The ordinals of the plants
+	 * @param counts
+	 *            The number of plants found, in the order of the ordinals
+	 * @param results
+	 *            Receives the total amounts, in the order of the ordinals
+	 */
+	public void rollAmounts(final long seed, final int[] plants, final int[] counts, final int[] results) {
+		for (int i = 0; i < plants.length; ++i) {
+			results[i] = roll(seed, plants[i], AMOUNT, counts[i]);
+		}
+	}
+
+	/**
+	 * Rolls the Grundmenge of one plant in many independent trials
+	 *
+	 * @param seed
+	 *            The seed of the first trial, the following trials use derived seeds
+	 * @param plant
+	 *            The ordinal of the plant
+	 * @param count
+	 *            The number of plants found in each trial
+	 * @param results
+	 *            Receives the total amount of each trial
+	 */
+	public void rollAmountTrials(final long seed, final int plant, final int count, final int[] results) {
+		for (int trial = 0; trial < results.length; ++trial) {
+			results[trial] = roll(seed + trial * GOLDEN_GAMMA, plant, AMOUNT, count);
+		}
+	}
+
+	/**
+	 * Rolls the Haltbarkeit of a plant
+	 *
+	 * @return The durability or 0 if the plant has no Haltbarkeit
+	 */
+	public int rollDurability(final long seed, final int plant) {
+		return roll(seed, plant, DURABILITY, 1);
+	}
+}
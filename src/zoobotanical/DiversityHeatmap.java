@@ -0,0 +1,301 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import dsatool.util.ErrorLogger;
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Colors every map pixel by the number of catalog entries available there, following the rules of
+ * {@link ZoobotanicalUtil#isAvailable(CatalogEntry, int, int, BitSet)} for the regions at the pixel.
+ * All pixels with the same region combination share a color, so the colors are determined per combination and cached per month and terrain,
+ * while the pixels are only painted again in the tiles whose colors changed.
+ * Each view only keeps the images of the tiles intersecting its viewport.
+ */
+public class DiversityHeatmap {
+
+	private static final int TILE_SIZE = 128;
+
+	private record Key(int month, int terrain) {}
+
+	private final RegionIndex regions;
+	private final CatalogIndex entries;
+	private final int width;
+	private final int height;
+	private final int columns;
+	private final int rows;
+	// The entries located in the regions of each combination, regardless of month and terrain
+	private final long[][] labelEntries;
+	// The combinations occurring in each tile
+	private final BitSet[] tileLabels;
+	private final int[] palette;
+	private final Map<Key, int[]> colors;
+
+	/**
+	 * Creates the heatmap, which scans all pixels once and should therefore not be done on the application thread
+	 */
+	public DiversityHeatmap(final RegionIndex regions, final CatalogIndex entries, final int cacheSize) {
+		this.regions = regions;
+		this.entries = entries;
+		width = regions.getWidth();
+		height = regions.getHeight();
+		columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+		rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+		labelEntries = new long[regions.getCombinationCount()][];
+		int maxCount = 1;
+		for (int label = 0; label < labelEntries.length; ++label) {
+			labelEntries[label] = entries.getAvailable(-1, ZoobotanicalUtil.ANY_TERRAIN, regions.getCombination(label));
+			maxCount = Math.max(maxCount, CatalogIndex.cardinality(labelEntries[label]));
+		}
+
+		// The scale is fixed by the most diverse combination without filters, so a color always means the same number of entries
+		palette = new int[maxCount + 1];
+		for (int count = 1; count <= maxCount; ++count) {
+			final Color color = Color.hsb(120.0 * count / maxCount, 1, 1);
+			palette[count] = 0xFF000000 | (int) Math.round(color.getRed() * 255) << 16 | (int) Math.round(color.getGreen() * 255) << 8
+					| (int) Math.round(color.getBlue() * 255);
+		}
+
+		tileLabels = IntStream.range(0, columns * rows).parallel().mapToObj(tile -> {
+			final BitSet labels = new BitSet(labelEntries.length);
+			final int left = tile % columns * TILE_SIZE;
+			final int top = tile / columns * TILE_SIZE;
+			for (int y = top; y < Math.min(height, top + TILE_SIZE); ++y) {
+				for (int x = left; x < Math.min(width, left + TILE_SIZE); ++x) {
+					labels.set(regions.labelAt(x, y));
+				}
+			}
+			return labels;
+		}).toArray(BitSet[]::new);
+
+		colors = new LinkedHashMap<>(cacheSize, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, int[]> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * Creates a new view of the heatmap, must be called on the application thread
+	 */
+	public View createView() {
+		return new View();
+	}
+
+	/**
+	 * Returns the colors of all region combinations for the given month and terrain
+	 *
+	 * @return The colors as ARGB values indexed by the labels of the combinations, must not be modified
+	 */
+	private synchronized int[] getColors(final Key key) {
+		int[] result = colors.get(key);
+		if (result == null) {
+			final long[] available = entries.getAvailable(key.month(), key.terrain(), null);
+			result = new int[labelEntries.length];
+			for (int label = 0; label < labelEntries.length; ++label) {
+				final long[] labelAvailable = labelEntries[label];
+				int count = 0;
+				for (int i = 0; i < available.length; ++i) {
+					count += Long.bitCount(labelAvailable[i] & available[i]);
+				}
+				result[label] = palette[count];
+			}
+			colors.put(key, result);
+		}
+		return result;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * A tile of the heatmap shown in a view
+	 */
+	private class Tile {
+		private final int index;
+		private final int left;
+		private final int top;
+		private final WritableImage image;
+		private final ImageView node;
+		// The filters and colors the tile was last painted with
+		private Key key = null;
+		private int[] colors = null;
+
+		private Tile(final int index) {
+			this.index = index;
+			left = index % columns * TILE_SIZE;
+			top = index / columns * TILE_SIZE;
+			image = new WritableImage(Math.min(TILE_SIZE, width - left), Math.min(TILE_SIZE, height - top));
+			node = new ImageView(image);
+			node.setX(left);
+			node.setY(top);
+		}
+	}
+
+	public class View {
+		private record Result(Key key, int[] colors, List<Tile> tiles, int[][] pixels) {}
+
+		private final Group node = new Group();
+		private Map<Integer, Tile> shownTiles = new HashMap<>();
+		private Key key = null;
+		private Bounds visible = null;
+		private boolean rendering = false;
+		private boolean pending = false;
+
+		private View() {}
+
+		/**
+		 * Starts the latest request made while rendering, called after a rendering succeeded or failed
+		 */
+		private void finishRendering() {
+			rendering = false;
+			if (pending) {
+				pending = false;
+				update();
+			}
+		}
+
+		public Node getNode() {
+			return node;
+		}
+
+		/**
+		 * Paints the given tiles, skipping those whose colors did not change, must only be called while no other rendering is running
+		 */
+		private Result render(final Key key, final List<Tile> tiles) {
+			final int[] newColors = getColors(key);
+			final int[][] pixels = tiles.parallelStream().map(tile -> {
+				if (tile.colors != null) {
+					final BitSet labels = tileLabels[tile.index];
+					int label = labels.nextSetBit(0);
+					while (label >= 0 && tile.colors[label] == newColors[label]) {
+						label = labels.nextSetBit(label + 1);
+					}
+					if (label < 0) return null;
+				}
+
+				final int tileWidth = (int) tile.image.getWidth();
+				final int tileHeight = (int) tile.image.getHeight();
+				final int[] tilePixels = new int[tileWidth * tileHeight];
+				for (int y = 0; y < tileHeight; ++y) {
+					for (int x = 0; x < tileWidth; ++x) {
+						tilePixels[y * tileWidth + x] = newColors[regions.labelAt(tile.left + x, tile.top + y)];
+					}
+				}
+				return tilePixels;
+			}).toArray(int[][]::new);
+			return new Result(key, newColors, tiles, pixels);
+		}
+
+		/**
+		 * Shows the heatmap for the given filters. Only the tiles intersecting the visible part of the map are kept, their pixels are painted
+		 * in the background. While a rendering is running only the latest request is kept. Must be called on the application thread.
+		 *
+		 * @param month
+		 *            The ordinal of the month or -1 for any month
+		 * @param terrain
+		 *            The ordinal of the terrain
+		 * @param visible
+		 *            The visible part of the map in map coordinates
+		 */
+		public void show(final int month, final int terrain, final Bounds visible) {
+			key = new Key(month, terrain);
+			this.visible = visible;
+			if (rendering) {
+				pending = true;
+				return;
+			}
+			update();
+		}
+
+		private void showResult(final Result result) {
+			for (int i = 0; i < result.pixels().length; ++i) {
+				final Tile tile = result.tiles().get(i);
+				final int[] pixels = result.pixels()[i];
+				if (pixels != null) {
+					final int tileWidth = (int) tile.image.getWidth();
+					tile.image.getPixelWriter().setPixels(0, 0, tileWidth, (int) tile.image.getHeight(), PixelFormat.getIntArgbInstance(), pixels, 0,
+							tileWidth);
+				}
+				tile.key = result.key();
+				tile.colors = result.colors();
+			}
+			finishRendering();
+		}
+
+		/**
+		 * Replaces the tiles by those intersecting the visible part of the map and starts painting the ones not showing the requested filters
+		 */
+		private void update() {
+			final int minX = Math.max(0, (int) Math.floor(visible.getMinX() / TILE_SIZE));
+			final int maxX = Math.min(columns - 1, (int) Math.floor(visible.getMaxX() / TILE_SIZE));
+			final int minY = Math.max(0, (int) Math.floor(visible.getMinY() / TILE_SIZE));
+			final int maxY = Math.min(rows - 1, (int) Math.floor(visible.getMaxY() / TILE_SIZE));
+
+			final Map<Integer, Tile> tiles = new HashMap<>();
+			final List<Node> children = new ArrayList<>();
+			final List<Tile> outdated = new ArrayList<>();
+			for (int y = minY; y <= maxY; ++y) {
+				for (int x = minX; x <= maxX; ++x) {
+					final int index = y * columns + x;
+					Tile tile = shownTiles.get(index);
+					if (tile == null) {
+						tile = new Tile(index);
+					}
+					tiles.put(index, tile);
+					children.add(tile.node);
+					if (!key.equals(tile.key)) {
+						outdated.add(tile);
+					}
+				}
+			}
+			shownTiles = tiles;
+			node.getChildren().setAll(children);
+
+			if (outdated.isEmpty()) return;
+			rendering = true;
+			final Key requested = key;
+			CompletableFuture.supplyAsync(() -> render(requested, outdated)).thenAcceptAsync(this::showResult, Platform::runLater).exceptionally(e -> {
+				ErrorLogger.logError(e);
+				Platform.runLater(this::finishRendering);
+				return null;
+			});
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The terrains in which each plant can be searched for, sorted by the search difficulty from {@link ZoobotanicalUtil#getSearchDifficulty(Plant, int)}.
+ * The difficulty only depends on the terrain, so the month and the location only decide whether the options apply at all, and the best options are
+ * always a prefix of the precomputed table.
+ */
+public class HarvestPlanner {
+
+	/**
+	 * A terrain to search for a plant in
+	 *
+	 * @param terrain
+	 *            The ordinal of the terrain
+	 * @param difficulty
+	 *            The search difficulty including the identification
+	 * @param months
+	 *            The months of the harvest as a bitmask over their ordinals
+	 * @param regions
+	 *            The regions the plant is found in
+	 */
+	public record Option(int terrain, int difficulty, int months, BitSet regions) {}
+
+	// Per plant: the search difficulty in the upper and the terrain in the lower half, ascending
+	private final long[][] options;
+
+	public HarvestPlanner(final PlantCatalog catalog) {
+		options = new long[catalog.size()][];
+		final int terrainCount = catalog.getTerrainCount();
+		final long[] packed = new long[terrainCount];
+		for (final Plant plant : catalog.getPlants()) {
+			int count = 0;
+			if (plant.isHarvestable() && plant.getIdentification() != Plant.UNKNOWN_IDENTIFICATION) {
+				for (int terrain = ZoobotanicalUtil.ANY_TERRAIN + 1; terrain < terrainCount; ++terrain) {
+					final Prevalence prevalence = plant.getPrevalence(terrain);
+					if (prevalence == null || prevalence == Prevalence.UNKNOWN) {
+						continue;
+					}
+					packed[count] = (long) ZoobotanicalUtil.getSearchDifficulty(plant, terrain) << 32 | terrain;
+					++count;
+				}
+			}
+			final long[] sorted = Arrays.copyOf(packed, count);
+			Arrays.sort(sorted);
+			options[plant.getOrdinal()] = sorted;
+		}
+	}
+
+	/**
+	 * Returns the best options to search for the plant
+	 *
+	 * @param month
+	 *            The ordinal of the month of the search or -1 for any month
+	 * @param location
+	 *            The regions at the location of the search or null for any location
+	 * @param limit
+	 *            The maximum number of options
+	 * @return The options, ascending by difficulty
+	 */
+	public List<Option> getBestOptions(final Plant plant, final int month, final BitSet location, final int limit) {
+		final long[] plantOptions = options[plant.getOrdinal()];
+		if (plantOptions.length == 0 || month >= 0 && !plant.isInMonth(month)) return Collections.emptyList();
+
+		final BitSet regions = plant.getRegions();
+		if (location != null) {
+			regions.and(location);
+			if (regions.isEmpty()) return Collections.emptyList();
+		}
+		final int months = month >= 0 ? 1 << month : plant.getMonths();
+
+		final int count = Math.min(limit, plantOptions.length);
+		final List<Option> result = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			result.add(new Option((int) plantOptions[i], (int) (plantOptions[i] >> 32), months, regions));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.Arrays;
+
+/**
+ * The TaP* at which plants are found or identified, sorted per terrain, so the plants shown for a TaP* can be looked up by binary search.
+ * The rules follow {@link ZoobotanicalUtil#getHarvestCount(boolean, int, int)} when searching for any plant.
+ */
+public class HarvestThresholds {
+
+	private static int upperBound(final int[] taps, final int tap) {
+		int low = 0;
+		int high = taps.length;
+		while (low < high) {
+			final int middle = low + high >>> 1;
+			if (taps[middle] <= tap) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static void sort(final int[] taps, final int[] ordinals) {
+		final long[] packed = new long[taps.length];
+		for (int i = 0; i < taps.length; ++i) {
+			packed[i] = (long) taps[i] << 32 | ordinals[i];
+		}
+		Arrays.sort(packed);
+		for (int i = 0; i < taps.length; ++i) {
+			taps[i] = (int) (packed[i] >> 32);
+			ordinals[i] = (int) packed[i];
+		}
+	}
+
+	private final int words;
+
+	// Per terrain: the minimum TaP* to find at least one plant, ascending, and the plants in the same order
+	private final int[][] harvestTaps;
+	private final int[][] harvestPlants;
+
+	// Dangerous plants stay unidentified while the TaP* is below their identification, ascending
+	private final int[] identificationTaps;
+	private final int[] identificationPlants;
+
+	public HarvestThresholds(final PlantCatalog catalog) {
+		words = catalog.size() + 63 >>> 6;
+		final int terrainCount = catalog.getTerrainCount();
+		harvestTaps = new int[terrainCount][];
+		harvestPlants = new int[terrainCount][];
+
+		for (int terrain = 0; terrain < terrainCount; ++terrain) {
+			final int[] taps = new int[catalog.size()];
+			final int[] ordinals = new int[catalog.size()];
+			int count = 0;
+			for (final Plant plant : catalog.getPlants()) {
+				if (plant.getAmount() == null || plant.getPrevalence(terrain) == null && terrain != ZoobotanicalUtil.OTHER_TERRAIN) {
+					continue;
+				}
+				final int difficulty = ZoobotanicalUtil.getSearchDifficulty(plant, terrain);
+				if (difficulty <= 0 || difficulty == Integer.MAX_VALUE) {
+					continue;
+				}
+				// At least one plant is found once the difficulty is at most half the TaP*, rounded up
+				taps[count] = 2 * difficulty - 1;
+				ordinals[count] = plant.getOrdinal();
+				++count;
+			}
+			harvestTaps[terrain] = Arrays.copyOf(taps, count);
+			harvestPlants[terrain] = Arrays.copyOf(ordinals, count);
+			sort(harvestTaps[terrain], harvestPlants[terrain]);
+		}
+
+		final int[] taps = new int[catalog.size()];
+		final int[] ordinals = new int[catalog.size()];
+		int count = 0;
+		for (final Plant plant : catalog.getPlants()) {
+			if (plant.hasType(PlantType.DANGEROUS)) {
+				final int identification = plant.getIdentification();
+				taps[count] = identification == Plant.UNKNOWN_IDENTIFICATION ? Integer.MAX_VALUE : identification;
+				ordinals[count] = plant.getOrdinal();
+				++count;
+			}
+		}
+		identificationTaps = Arrays.copyOf(taps, count);
+		identificationPlants = Arrays.copyOf(ordinals, count);
+		sort(identificationTaps, identificationPlants);
+	}
+
+	/**
+	 * Returns the plants with an amount of which at least one is found with the given TaP*
+	 *
+	 * @param terrain
+	 *            The ordinal of the terrain
+	 * @param tap
+	 *            The TaP* of the search
+	 * @return A new bitset over the plant ordinals
+	 */
+	public long[] getHarvestable(final int terrain, final int tap) {
+		final long[] result = new long[words];
+		if (terrain < 0 || terrain >= harvestTaps.length) return result;
+		final int[] plants = harvestPlants[terrain];
+		for (int i = upperBound(harvestTaps[terrain], tap) - 1; i >= 0; --i) {
+			result[plants[i] >>> 6] |= 1L << plants[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the lowest TaP* above the given one at which one of the given plants is found
+	 *
+	 * @param terrain
+	 *            The ordinal of the terrain
+	 * @param tap
+	 *            The current TaP*
+	 * @param available
+	 *            A bitset over the ordinals of the plants to consider
+	 * @return The TaP* or {@link Integer#MAX_VALUE} if no further plant can be found
+	 */
+	public int getNextHarvestable(final int terrain, final int tap, final long[] available) {
+		if (terrain < 0 || terrain >= harvestTaps.length) return Integer.MAX_VALUE;
+		final int[] taps = harvestTaps[terrain];
+		final int[] plants = harvestPlants[terrain];
+		for (int i = upperBound(taps, tap); i < taps.length; ++i) {
+			if (CatalogIndex.contains(available, plants[i])) return taps[i];
+		}
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the dangerous plants that are not identified with the given TaP*
+	 *
+	 * @param tap
+	 *            The TaP* of the search
+	 * @return A new bitset over the plant ordinals
+	 */
+	public long[] getUnidentified(final int tap) {
+		final long[] result = new long[words];
+		for (int i = upperBound(identificationTaps, tap); i < identificationTaps.length; ++i) {
+			result[identificationPlants[i] >>> 6] |= 1L << identificationPlants[i];
+		}
+		return result;
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import javafx.geometry.Bounds;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+/**
+ * Shows the map from a pyramid of tiles, which is generated once and cached on disk.
+ * Only the tiles intersecting the viewport are shown, at the coarsest level that still matches the zoom.
+ * The loaded tiles are shared by all views of the map.
+ */
+public class MapTiles {
+
+	private static final int TILE_SIZE = 256;
+	private static final int MAX_LOADED_TILES = 96;
+	private static final String INFO_FILE = "tiles.info";
+	// Part of the cache directory name, so pyramids generated with other settings are not reused
+	private static final int VERSION = 2;
+
+	private static void generate(final File source, final File directory) throws IOException {
+		BufferedImage image = ImageIO.read(source);
+		if (image == null) throw new IOException("Karte konnte nicht gelesen werden: " + source);
+		final int width = image.getWidth();
+		final int height = image.getHeight();
+
+		final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+		final ImageWriteParam param = writer.getDefaultWriteParam();
+		param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+
+		int levels = 0;
+		try {
+			while (true) {
+				final File levelDirectory = new File(directory, Integer.toString(levels));
+				if (!levelDirectory.isDirectory() && !levelDirectory.mkdirs()) throw new IOException("Verzeichnis konnte nicht erstellt werden: " + levelDirectory);
+				// The full resolution is viewed zoomed in, so it must not look worse than the original map
+				param.setCompressionQuality(levels == 0 ? 0.95f : 0.85f);
+				for (int y = 0; y < image.getHeight(); y += TILE_SIZE) {
+					for (int x = 0; x < image.getWidth(); x += TILE_SIZE) {
+						final BufferedImage tile = image.getSubimage(x, y, Math.min(TILE_SIZE, image.getWidth() - x), Math.min(TILE_SIZE, image.getHeight() - y));
+						writeTile(writer, param, tile, new File(levelDirectory, x / TILE_SIZE + "_" + y / TILE_SIZE + ".jpg"));
+					}
+				}
+				++levels;
+				if (image.getWidth() <= TILE_SIZE && image.getHeight() <= TILE_SIZE) {
+					break;
+				}
+
+				final BufferedImage next = new BufferedImage((image.getWidth() + 1) / 2, (image.getHeight() + 1) / 2, BufferedImage.TYPE_INT_RGB);
+				final Graphics2D graphics = next.createGraphics();
+				graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				graphics.drawImage(image, 0, 0, next.getWidth(), next.getHeight(), null);
+				graphics.dispose();
+				image = next;
+			}
+		} finally {
+			writer.dispose();
+		}
+
+		// Written last, so an interrupted generation is not mistaken for a complete pyramid
+		Files.writeString(new File(directory, INFO_FILE).toPath(), width + " " + height + " " + levels);
+	}
+
+	/**
+	 * Opens the tile pyramid for the given map, generating it first if it is not cached yet
+	 *
+	 * @param source
+	 *            The full resolution map
+	 * @param cache
+	 *            The directory the pyramids are cached in
+	 * @return The tiles for the map
+	 */
+	public static MapTiles load(final File source, final File cache) throws IOException {
+		final File directory = new File(cache,
+				source.getName() + "-" + Long.toHexString(source.length()) + "-" + Long.toHexString(source.lastModified()) + "-v" + VERSION);
+		final File info = new File(directory, INFO_FILE);
+		if (!info.isFile()) {
+			generate(source, directory);
+		}
+		final String[] dimensions = Files.readString(info.toPath()).trim().split(" ");
+		return new MapTiles(directory, Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]), Integer.parseInt(dimensions[2]));
+	}
+
+	private static void writeTile(final ImageWriter writer, final ImageWriteParam param, final BufferedImage tile, final File file) throws IOException {
+		// Image output streams do not truncate, so a tile left over from an interrupted generation could keep trailing data
+		Files.deleteIfExists(file.toPath());
+		try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+			if (output == null) throw new IOException("Kachel konnte nicht geschrieben werden: " + file);
+			writer.setOutput(output);
+			writer.write(null, new IIOImage(tile, null, null), param);
+		}
+	}
+
+	private final File directory;
+	private final int width;
+	private final int height;
+	private final int levels;
+
+	private final Image overview;
+	private final Map<String, Image> loadedTiles = new LinkedHashMap<>(MAX_LOADED_TILES, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Image> eldest) {
+			return size() > MAX_LOADED_TILES;
+		}
+	};
+
+	private MapTiles(final File directory, final int width, final int height, final int levels) {
+		this.directory = directory;
+		this.width = width;
+		this.height = height;
+		this.levels = levels;
+		overview = new Image(getTileFile(levels - 1, 0, 0).toURI().toString(), true);
+	}
+
+	/**
+	 * Creates a new view of the map, must be called on the application thread
+	 */
+	public View createView() {
+		return new View();
+	}
+
+	private File getTileFile(final int level, final int x, final int y) {
+		return new File(directory, level + "/" + x + "_" + y + ".jpg");
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	private synchronized Image getTile(final int level, final int x, final int y) {
+		final String key = level + "/" + x + "_" + y;
+		Image tile = loadedTiles.get(key);
+		if (tile == null) {
+			tile = new Image(getTileFile(level, x, y).toURI().toString(), true);
+			loadedTiles.put(key, tile);
+		}
+		return tile;
+	}
+
+	public class View {
+		private final Group node = new Group();
+		private final Group tileLayer = new Group();
+		private Map<String, ImageView> shownTiles = new HashMap<>();
+
+		private View() {
+			final Rectangle background = new Rectangle(width, height, Color.TRANSPARENT);
+			// The coarsest level is always shown below the tiles, so there are no holes while finer tiles are loading
+			final ImageView overviewView = new ImageView(overview);
+			overviewView.setFitWidth(width);
+			overviewView.setFitHeight(height);
+			node.getChildren().addAll(background, overviewView, tileLayer);
+		}
+
+		public Node getNode() {
+			return node;
+		}
+
+		/**
+		 * Shows the tiles intersecting the visible part of the map
+		 *
+		 * @param visible
+		 *            The visible part of the map in map coordinates
+		 * @param scale
+		 *            The current scale of the map
+		 */
+		public void show(final Bounds visible, final double scale) {
+			final int level = scale >= 1 ? 0 : Math.min(levels - 1, (int) Math.floor(-Math.log(scale) / Math.log(2)));
+			if (level == levels - 1) {
+				// Already covered by the overview
+				tileLayer.getChildren().clear();
+				shownTiles.clear();
+				return;
+			}
+
+			final int levelWidth = (width + (1 << level) - 1) >> level;
+			final int levelHeight = (height + (1 << level) - 1) >> level;
+			final double factorX = (double) width / levelWidth;
+			final double factorY = (double) height / levelHeight;
+			final double tileWidth = TILE_SIZE * factorX;
+			final double tileHeight = TILE_SIZE * factorY;
+
+			final int columns = (levelWidth + TILE_SIZE - 1) / TILE_SIZE;
+			final int rows = (levelHeight + TILE_SIZE - 1) / TILE_SIZE;
+			final int minX = Math.max(0, (int) Math.floor(visible.getMinX() / tileWidth));
+			final int maxX = Math.min(columns - 1, (int) Math.floor(visible.getMaxX() / tileWidth));
+			final int minY = Math.max(0, (int) Math.floor(visible.getMinY() / tileHeight));
+			final int maxY = Math.min(rows - 1, (int) Math.floor(visible.getMaxY() / tileHeight));
+
+			final Map<String, ImageView> tiles = new HashMap<>();
+			final List<Node> children = new ArrayList<>();
+			for (int y = minY; y <= maxY; ++y) {
+				for (int x = minX; x <= maxX; ++x) {
+					final String key = level + "/" + x + "_" + y;
+					ImageView tile = shownTiles.get(key);
+					if (tile == null) {
+						tile = new ImageView(getTile(level, x, y));
+						tile.setX(x * tileWidth);
+						tile.setY(y * tileHeight);
+						tile.setFitWidth(Math.min(TILE_SIZE, levelWidth - x * TILE_SIZE) * factorX);
+						tile.setFitHeight(Math.min(TILE_SIZE, levelHeight - y * TILE_SIZE) * factorY);
+					}
+					tiles.put(key, tile);
+					children.add(tile);
+				}
+			}
+			shownTiles = tiles;
+			tileLayer.getChildren().setAll(children);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.text.CollationKey;
+import java.util.BitSet;
+import java.util.List;
+
+import jsonant.value.JSONObject;
+
+/**
+ * An immutable, precompiled view of a plant from data/Pflanzen
+ */
+public final class Plant extends CatalogEntry {
+
+	public static final int UNKNOWN_IDENTIFICATION = Integer.MIN_VALUE;
+
+	private final boolean harvestable;
+	private final int identification;
+	private final JSONObject amount;
+	private final String amountType;
+	private final JSONObject durability;
+	private final double price;
+
+	Plant(final String name, final int ordinal, final CollationKey sortKey, final JSONObject data, final boolean harvestable, final int harvestMonths, final int types,
+			final List<String> typeNames, final byte[] prevalence, final BitSet regions, final int identification, final JSONObject amount,
+			final JSONObject durability, final double price, final String notes) {
+		super(name, ordinal, sortKey, data, harvestMonths, types, typeNames, prevalence, regions, notes);
+		this.harvestable = harvestable;
+		this.identification = identification;
+		this.amount = amount;
+		amountType = amount == null ? null : amount.getString("Art");
+		this.durability = durability;
+		this.price = price;
+	}
+
+	public JSONObject getAmount() {
+		return amount;
+	}
+
+	public String getAmountType() {
+		return amountType;
+	}
+
+	public JSONObject getDurability() {
+		return durability;
+	}
+
+	public int getIdentification() {
+		return identification;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public boolean hasType(final PlantType type) {
+		return (getTypes() & type.mask()) != 0;
+	}
+
+	public boolean isHarvestable() {
+		return harvestable;
+	}
+}
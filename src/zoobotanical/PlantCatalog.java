@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.List;
+
+import jsonant.value.JSONArray;
+import jsonant.value.JSONObject;
+
+/**
+ * Compiles the plants from data/Pflanzen into {@link Plant}s
+ */
+public class PlantCatalog extends Catalog<Plant> {
+
+	private HarvestThresholds thresholds;
+	private DiceKernel dice;
+	private HarvestPlanner planner;
+
+	public PlantCatalog(final JSONObject data, final List<String> regions) {
+		super(data, regions, PlantCatalog::compile);
+	}
+
+	private static Plant compile(final Ordinals ordinals, final String name, final int ordinal, final JSONObject plant) {
+		final JSONArray harvest = plant.getArrOrDefault("Ernte", null);
+
+		int types = 0;
+		final List<String> typeNames = plant.getArr("Typ").getStrings();
+		for (final String typeName : typeNames) {
+			final PlantType type = PlantType.of(typeName);
+			if (type != null) {
+				types |= type.mask();
+			}
+		}
+
+		final Double price = plant.getDouble("Preis");
+
+		return new Plant(name, ordinal, ordinals.getSortKey(name), plant, harvest != null, ordinals.compileMonths(harvest), types, typeNames,
+				ordinals.compilePrevalence(plant.getObjOrDefault("Verbreitung", null)), ordinals.compileRegions(plant.getArr("Gebiet")),
+				plant.getIntOrDefault("Bestimmung", Plant.UNKNOWN_IDENTIFICATION), plant.getObjOrDefault("Grundmenge", null),
+				plant.getObjOrDefault("Haltbarkeit", null), price == null ? Double.NaN : price, plant.getString("Anmerkungen"));
+	}
+
+	public synchronized DiceKernel getDice() {
+		if (dice == null) {
+			dice = new DiceKernel(this);
+		}
+		return dice;
+	}
+
+	public synchronized HarvestPlanner getHarvestPlanner() {
+		if (planner == null) {
+			planner = new HarvestPlanner(this);
+		}
+		return planner;
+	}
+
+	public synchronized HarvestThresholds getHarvestThresholds() {
+		if (thresholds == null) {
+			thresholds = new HarvestThresholds(this);
+		}
+		return thresholds;
+	}
+
+	public Plant getPlant(final String name) {
+		return getEntry(name);
+	}
+
+	public List<Plant> getPlants() {
+		return getEntries();
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+public enum PlantType {
+	DANGEROUS("Gefährliche Pflanze", "red"),
+	POISONOUS("Giftpflanze", "darkviolet"),
+	HEALING("Heilpflanze", "green"),
+	USEFUL("Nutzpflanze", "sienna"),
+	SUPERNATURAL("Übernatürliche Pflanze", "goldenrod");
+
+	public static PlantType of(final String name) {
+		for (final PlantType type : values()) {
+			if (type.name.equals(name)) return type;
+		}
+		return null;
+	}
+
+	public final String name;
+	public final String color;
+
+	private PlantType(final String name, final String color) {
+		this.name = name;
+		this.color = color;
+	}
+
+	public int mask() {
+		return 1 << ordinal();
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+public enum Prevalence {
+	VERY_COMMON("sehr häufig", 1, "green"),
+	COMMON("häufig", 2, "limegreen"),
+	OCCASIONAL("gelegentlich", 4, "orange"),
+	RARE("selten", 8, "orangered"),
+	VERY_RARE("sehr selten", 16, "crimson"),
+	UNKNOWN("", Integer.MAX_VALUE, "black");
+
+	private static final Prevalence[] values = values();
+
+	public static Prevalence of(final String name) {
+		for (final Prevalence prevalence : values) {
+			if (prevalence.name.equals(name)) return prevalence;
+		}
+		return UNKNOWN;
+	}
+
+	static Prevalence ofByte(final byte prevalence) {
+		return prevalence == 0 ? null : values[prevalence - 1];
+	}
+
+	public final String name;
+	public final int difficulty;
+	public final String color;
+
+	private Prevalence(final String name, final int difficulty, final String color) {
+		this.name = name;
+		this.difficulty = difficulty;
+		this.color = color;
+	}
+
+	byte toByte() {
+		return (byte) (ordinal() + 1);
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A static R-tree over bounding boxes, bulk loaded with the sort-tile-recursive method
+ */
+public class RTree {
+
+	private static final int NODE_CAPACITY = 16;
+
+	// Boxes per level, level 0 holds the items themselves, every following level holds the nodes grouping the previous one
+	private final float[][] minX;
+	private final float[][] minY;
+	private final float[][] maxX;
+	private final float[][] maxY;
+	// The children of node i on level l are the entries firstChild[l][i] to firstChild[l][i + 1] - 1 on level l - 1
+	private final int[][] firstChild;
+	// Maps the entries on level 0 back to the indices the items were given in
+	private final int[] items;
+
+	/**
+	 * Creates a tree over the given boxes, the items are identified by their index in the arrays
+	 */
+	public RTree(final float[] itemMinX, final float[] itemMinY, final float[] itemMaxX, final float[] itemMaxY) {
+		final int count = itemMinX.length;
+		items = new int[count];
+		for (int i = 0; i < count; ++i) {
+			items[i] = i;
+		}
+		sortTiles(items, itemMinX, itemMinY, itemMaxX, itemMaxY);
+
+		int levels = 1;
+		for (int size = count; size > 1; size = (size + NODE_CAPACITY - 1) / NODE_CAPACITY) {
+			++levels;
+		}
+		minX = new float[levels][];
+		minY = new float[levels][];
+		maxX = new float[levels][];
+		maxY = new float[levels][];
+		firstChild = new int[levels][];
+
+		minX[0] = new float[count];
+		minY[0] = new float[count];
+		maxX[0] = new float[count];
+		maxY[0] = new float[count];
+		for (int i = 0; i < count; ++i) {
+			minX[0][i] = itemMinX[items[i]];
+			minY[0][i] = itemMinY[items[i]];
+			maxX[0][i] = itemMaxX[items[i]];
+			maxY[0][i] = itemMaxY[items[i]];
+		}
+
+		// The entries of each level are already in tile order, so consecutive runs form the nodes of the next level
+		for (int level = 1; level < levels; ++level) {
+			final int children = minX[level - 1].length;
+			final int nodes = (children + NODE_CAPACITY - 1) / NODE_CAPACITY;
+			minX[level] = new float[nodes];
+			minY[level] = new float[nodes];
+			maxX[level] = new float[nodes];
+			maxY[level] = new float[nodes];
+			firstChild[level] = new int[nodes + 1];
+			for (int node = 0; node < nodes; ++node) {
+				final int first = node * NODE_CAPACITY;
+				final int last = Math.min(children, first + NODE_CAPACITY);
+				firstChild[level][node] = first;
+				minX[level][node] = Float.POSITIVE_INFINITY;
+				minY[level][node] = Float.POSITIVE_INFINITY;
+				maxX[level][node] = Float.NEGATIVE_INFINITY;
+				maxY[level][node] = Float.NEGATIVE_INFINITY;
+				for (int child = first; child < last; ++child) {
+					minX[level][node] = Math.min(minX[level][node], minX[level - 1][child]);
+					minY[level][node] = Math.min(minY[level][node], minY[level - 1][child]);
+					maxX[level][node] = Math.max(maxX[level][node], maxX[level - 1][child]);
+					maxY[level][node] = Math.max(maxY[level][node], maxY[level - 1][child]);
+				}
+			}
+			firstChild[level][nodes] = children;
+		}
+	}
+
+	private static int sortableBits(final float value) {
+		final int bits = Float.floatToIntBits(value);
+		return bits ^ bits >> 31 & 0x7FFFFFFF;
+	}
+
+	/**
+	 * Sorts the items by a key, packing both into longs to avoid boxing
+	 */
+	private static void sort(final int[] items, final int from, final int to, final float[] min, final float[] max) {
+		final long[] packed = new long[to - from];
+		for (int i = from; i < to; ++i) {
+			packed[i - from] = (long) sortableBits(min[items[i]] + max[items[i]]) << 32 | items[i];
+		}
+		Arrays.sort(packed);
+		for (int i = from; i < to; ++i) {
+			items[i] = (int) packed[i - from];
+		}
+	}
+
+	private static void sortTiles(final int[] items, final float[] minX, final float[] minY, final float[] maxX, final float[] maxY) {
+		final int count = items.length;
+		final int leaves = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+		final int slices = (int) Math.ceil(Math.sqrt(leaves));
+		final int sliceSize = slices * NODE_CAPACITY;
+
+		sort(items, 0, count, minX, maxX);
+		for (int start = 0; start < count; start += sliceSize) {
+			sort(items, start, Math.min(count, start + sliceSize), minY, maxY);
+		}
+	}
+
+	/**
+	 * Reports every item whose bounding box intersects the given box
+	 *
+	 * @param left
+	 *            The minimum x coordinate of the box
+	 * @param top
+	 *            The minimum y coordinate of the box
+	 * @param right
+	 *            The maximum x coordinate of the box
+	 * @param bottom
+	 *            The maximum y coordinate of the box
+	 * @param action
+	 *            Called with the index of each matching item
+	 */
+	public void query(final double left, final double top, final double right, final double bottom, final IntConsumer action) {
+		if (items.length > 0) {
+			query(minX.length - 1, 0, left, top, right, bottom, action);
+		}
+	}
+
+	private void query(final int level, final int entry, final double left, final double top, final double right, final double bottom,
+			final IntConsumer action) {
+		if (right < minX[level][entry] || left > maxX[level][entry] || bottom < minY[level][entry] || top > maxY[level][entry]) return;
+		if (level == 0) {
+			action.accept(items[entry]);
+		} else {
+			for (int child = firstChild[level][entry]; child < firstChild[level][entry + 1]; ++child) {
+				query(level - 1, child, left, top, right, bottom, action);
+			}
+		}
+	}
+
+	public int size() {
+		return items.length;
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import javax.imageio.ImageIO;
+
+import dsatool.util.ErrorLogger;
+import javafx.geometry.Rectangle2D;
+
+/**
+ * Maps every pixel of the map to a label, which in turn refers to the combination of regions containing that pixel
+ */
+public class RegionIndex {
+
+	private static final int MEMBER = 0xFF000000;
+
+	static List<File> getRegionFiles(final File[] files) {
+		final List<File> regionFiles = new ArrayList<>();
+		if (files != null) {
+			for (final File file : files) {
+				if (file.isFile()) {
+					regionFiles.add(file);
+				}
+			}
+		}
+		regionFiles.sort(Comparator.comparing(File::getName));
+		return regionFiles;
+	}
+
+	private static String getRegionName(final File file) {
+		final String fileName = file.getName();
+		return fileName.substring(0, fileName.indexOf('.'));
+	}
+
+	/**
+	 * Returns the region names in the order of their ordinals without decoding the masks
+	 */
+	public static List<String> getRegionNames(final File[] files) {
+		return getRegionFiles(files).stream().map(RegionIndex::getRegionName).toList();
+	}
+
+	public static RegionIndex load(final File[] files) {
+		final List<File> regionFiles = getRegionFiles(files);
+
+		// Decoding is limited to one mask per core at a time, every decoded image is reduced to a bit mask right away
+		final Semaphore decoding = new Semaphore(Runtime.getRuntime().availableProcessors());
+		final List<Future<Mask>> masks = new ArrayList<>(regionFiles.size());
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (final File file : regionFiles) {
+				masks.add(executor.submit(() -> {
+					decoding.acquire();
+					try {
+						return Mask.decode(file);
+					} finally {
+						decoding.release();
+					}
+				}));
+			}
+
+			final Builder builder = new Builder(regionFiles.stream().map(RegionIndex::getRegionName).toList());
+			for (int i = 0; i < masks.size(); ++i) {
+				try {
+					final Mask mask = masks.get(i).get();
+					if (mask != null) {
+						builder.add(i, mask);
+					}
+				} catch (final ExecutionException e) {
+					ErrorLogger.logError(e.getCause());
+				}
+			}
+			return builder.build();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new Builder(List.of()).build();
+		}
+	}
+
+	private final List<String> names;
+	private final Map<String, Integer> ordinals;
+	private final int width;
+	private final int height;
+	private final CharBuffer labels;
+	private final BitSet[] combinations;
+	private final int[][] bounds;
+
+	RegionIndex(final List<String> names, final int width, final int height, final CharBuffer labels, final BitSet[] combinations, final int[][] bounds) {
+		this.names = List.copyOf(names);
+		ordinals = new HashMap<>(names.size());
+		for (int i = 0; i < names.size(); ++i) {
+			ordinals.put(names.get(i), i);
+		}
+		this.width = width;
+		this.height = height;
+		this.labels = labels;
+		this.combinations = combinations;
+		this.bounds = bounds;
+	}
+
+	/**
+	 * Returns the bounding box of a region
+	 *
+	 * @param region
+	 *            The ordinal of the region
+	 * @return The bounding box or null if the region is empty
+	 */
+	public Rectangle2D getBounds(final int region) {
+		final int[] regionBounds = bounds[region];
+		return regionBounds[0] > regionBounds[2] ? null
+				: new Rectangle2D(regionBounds[0], regionBounds[1], regionBounds[2] - regionBounds[0] + 1, regionBounds[3] - regionBounds[1] + 1);
+	}
+
+	public BitSet getCombination(final int label) {
+		return (BitSet) combinations[label].clone();
+	}
+
+	public int getCombinationCount() {
+		return combinations.length;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getRegionCount() {
+		return names.size();
+	}
+
+	public String getRegionName(final int ordinal) {
+		return names.get(ordinal);
+	}
+
+	public List<String> getRegionNames() {
+		return names;
+	}
+
+	public int getRegionOrdinal(final String name) {
+		return ordinals.getOrDefault(name, -1);
+	}
+
+	/**
+	 * Returns a read-only view of the labels of all pixels, row by row
+	 */
+	CharBuffer getLabels() {
+		return labels.asReadOnlyBuffer();
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int labelAt(final int x, final int y) {
+		return labels.get(y * width + x);
+	}
+
+	public BitSet regionsAt(final double x, final double y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) return new BitSet();
+		return (BitSet) combinations[labels.get((int) y * width + (int) x)].clone();
+	}
+
+	private static class Builder {
+		private final List<String> names;
+		private final List<BitSet> combinations = new ArrayList<>();
+		private final Map<BitSet, Integer> combinationLabels = new HashMap<>();
+		private final int[][] bounds;
+		private int width = -1;
+		private int height = -1;
+		private char[] labels;
+
+		private Builder(final List<String> names) {
+			this.names = names;
+			bounds = new int[names.size()][];
+			for (int i = 0; i < bounds.length; ++i) {
+				bounds[i] = new int[] { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE };
+			}
+			final BitSet empty = new BitSet();
+			combinations.add(empty);
+			combinationLabels.put(empty, 0);
+		}
+
+		private void add(final int region, final Mask mask) {
+			if (labels == null) {
+				width = mask.width;
+				height = mask.height;
+				labels = new char[width * height];
+			} else if (mask.width != width || mask.height != height) {
+				ErrorLogger.log("Gebietskarte \"" + names.get(region) + "\" hat abweichende Größe");
+				return;
+			}
+
+			final int[] mapping = new int[combinations.size()];
+			Arrays.fill(mapping, -1);
+
+			final int[] regionBounds = bounds[region];
+			for (int i = mask.pixels.nextSetBit(0); i >= 0; i = mask.pixels.nextSetBit(i + 1)) {
+				final int x = i % width;
+				final int y = i / width;
+				regionBounds[0] = Math.min(regionBounds[0], x);
+				regionBounds[1] = Math.min(regionBounds[1], y);
+				regionBounds[2] = Math.max(regionBounds[2], x);
+				regionBounds[3] = Math.max(regionBounds[3], y);
+
+				final int label = labels[i];
+				if (mapping[label] < 0) {
+					mapping[label] = getLabel(label, region);
+				}
+				labels[i] = (char) mapping[label];
+			}
+		}
+
+		private RegionIndex build() {
+			if (labels == null) {
+				width = 0;
+				height = 0;
+				labels = new char[0];
+			}
+			return new RegionIndex(names, width, height, CharBuffer.wrap(labels), combinations.toArray(new BitSet[combinations.size()]), bounds);
+		}
+
+		private int getLabel(final int previous, final int region) {
+			final BitSet combination = (BitSet) combinations.get(previous).clone();
+			combination.set(region);
+			return combinationLabels.computeIfAbsent(combination, c -> {
+				if (combinations.size() > Character.MAX_VALUE)
+					throw new IllegalStateException("Zu viele Gebietskombinationen");
+				combinations.add(c);
+				return combinations.size() - 1;
+			});
+		}
+	}
+
+	private record Mask(int width, int height, BitSet pixels) {
+		private static Mask decode(final File file) {
+			final BufferedImage image;
+			try {
+				image = ImageIO.read(file);
+				if (image == null) throw new IOException("Gebietsmaske konnte nicht gelesen werden: " + file);
+			} catch (final IOException e) {
+				ErrorLogger.logError(e);
+				return null;
+			}
+
+			final int width = image.getWidth();
+			final int height = image.getHeight();
+			final BitSet pixels = new BitSet(width * height);
+			final int[] row = new int[width];
+			for (int y = 0; y < height; ++y) {
+				image.getRGB(0, y, width, 1, row, 0, width);
+				final int offset = y * width;
+				for (int x = 0; x < width; ++x) {
+					if (row[x] == MEMBER) {
+						pixels.set(offset + x);
+					}
+				}
+			}
+			return new Mask(width, height, pixels);
+		}
+	}
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+
+/**
+ * Simplified polygon outlines of the regions, traced once from the raster masks of a {@link RegionIndex}.
+ * Each region consists of one or more rings, a point lies within the region if it is enclosed by an odd number of them.
+ */
+public class RegionOutlines {
+
+	// Maximum deviation of the simplified outlines from the pixel borders
+	private static final double TOLERANCE = 0.75;
+	private static final int CHUNK_SIZE = 32;
+
+	private static float[] simplify(final List<int[]> points) {
+		final int count = points.size();
+		final boolean[] keep = new boolean[count + 1];
+		if (count < 4) {
+			keep[0] = keep[count] = true;
+		} else {
+			// The ring is split at its first point and the point farthest from it, both halves are simplified as open chains
+			final int[] first = points.get(0);
+			int farthest = 1;
+			long farthestDistance = -1;
+			for (int i = 1; i < count; ++i) {
+				final long dx = points.get(i)[0] - first[0];
+				final long dy = points.get(i)[1] - first[1];
+				if (dx * dx + dy * dy > farthestDistance) {
+					farthestDistance = dx * dx + dy * dy;
+					farthest = i;
+				}
+			}
+			keep[0] = keep[farthest] = keep[count] = true;
+			simplify(points, keep, 0, farthest);
+			simplify(points, keep, farthest, count);
+		}
+
+		int kept = 0;
+		for (int i = 0; i < count; ++i) {
+			if (keep[i]) {
+				++kept;
+			}
+		}
+		if (kept < 3) return null;
+		final float[] ring = new float[kept * 2];
+		int index = 0;
+		for (int i = 0; i < count; ++i) {
+			if (keep[i]) {
+				ring[index++] = points.get(i)[0];
+				ring[index++] = points.get(i)[1];
+			}
+		}
+		return ring;
+	}
+
+	private static void simplify(final List<int[]> points, final boolean[] keep, final int start, final int end) {
+		final int count = points.size();
+		final int[] from = points.get(start);
+		final int[] to = points.get(end % count);
+		final double dx = to[0] - from[0];
+		final double dy = to[1] - from[1];
+		final double length = Math.hypot(dx, dy);
+
+		int farthest = -1;
+		double farthestDistance = TOLERANCE;
+		for (int i = start + 1; i < end; ++i) {
+			final int[] point = points.get(i);
+			final double distance = length == 0 ? Math.hypot(point[0] - from[0], point[1] - from[1])
+					: Math.abs(dy * (point[0] - from[0]) - dx * (point[1] - from[1])) / length;
+			if (distance > farthestDistance) {
+				farthestDistance = distance;
+				farthest = i;
+			}
+		}
+		if (farthest >= 0) {
+			keep[farthest] = true;
+			simplify(points, keep, start, farthest);
+			simplify(points, keep, farthest, end);
+		}
+	}
+
+	/**
+	 * Traces the borders of a region along the pixel edges
+	 *
+	 * @return The simplified rings of the region
+	 */
+	private static List<float[]> trace(final RegionIndex index, final int region) {
+		final List<float[]> rings = new ArrayList<>();
+		final Rectangle2D bounds = index.getBounds(region);
+		if (bounds == null) return rings;
+
+		final boolean[] memberLabels = new boolean[index.getCombinationCount()];
+		for (int label = 0; label < memberLabels.length; ++label) {
+			memberLabels[label] = index.getCombination(label).get(region);
+		}
+
+		final int left = (int) bounds.getMinX();
+		final int top = (int) bounds.getMinY();
+		final int width = (int) bounds.getWidth();
+		final int height = (int) bounds.getHeight();
+		final boolean[] member = new boolean[width * height];
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				member[y * width + x] = memberLabels[index.labelAt(left + x, top + y)];
+			}
+		}
+
+		// Every border edge is directed clockwise around its pixel, a vertex has at most two outgoing edges where pixels touch diagonally
+		final int vertexWidth = width + 1;
+		final int[] next = new int[vertexWidth * (height + 1) * 2];
+		Arrays.fill(next, -1);
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				if (!member[y * width + x]) {
+					continue;
+				}
+				final int topLeft = y * vertexWidth + x;
+				final int topRight = topLeft + 1;
+				final int bottomLeft = topLeft + vertexWidth;
+				final int bottomRight = bottomLeft + 1;
+				if (y == 0 || !member[(y - 1) * width + x]) {
+					addEdge(next, topLeft, topRight);
+				}
+				if (x == width - 1 || !member[y * width + x + 1]) {
+					addEdge(next, topRight, bottomRight);
+				}
+				if (y == height - 1 || !member[(y + 1) * width + x]) {
+					addEdge(next, bottomRight, bottomLeft);
+				}
+				if (x == 0 || !member[y * width + x - 1]) {
+					addEdge(next, bottomLeft, topLeft);
+				}
+			}
+		}
+
+		final List<int[]> points = new ArrayList<>();
+		for (int start = 0; start < next.length / 2; ++start) {
+			while (next[start * 2] >= 0) {
+				points.clear();
+				int previous = -1;
+				int current = start;
+				do {
+					final int following = takeEdge(next, current);
+					// Only corners are kept, vertices in the middle of a straight border are skipped
+					if (previous < 0 || following - current != current - previous) {
+						points.add(new int[] { left + current % vertexWidth, top + current / vertexWidth });
+					}
+					previous = current;
+					current = following;
+				} while (current != start);
+				final float[] ring = simplify(points);
+				if (ring != null) {
+					rings.add(ring);
+				}
+			}
+		}
+		return rings;
+	}
+
+	private static void addEdge(final int[] next, final int from, final int to) {
+		next[next[from * 2] < 0 ? from * 2 : from * 2 + 1] = to;
+	}
+
+	/**
+	 * Checks whether two line segments intersect, touching counts as intersecting
+	 */
+	private static boolean intersects(final double ax, final double ay, final double bx, final double by, final double cx, final double cy,
+			final double dx, final double dy) {
+		final double c = orientation(ax, ay, bx, by, cx, cy);
+		final double d = orientation(ax, ay, bx, by, dx, dy);
+		final double a = orientation(cx, cy, dx, dy, ax, ay);
+		final double b = orientation(cx, cy, dx, dy, bx, by);
+		if (c == 0 && d == 0) {
+			// Collinear segments only intersect if their projections overlap
+			return Math.max(ax, bx) >= Math.min(cx, dx) && Math.min(ax, bx) <= Math.max(cx, dx) && Math.max(ay, by) >= Math.min(cy, dy)
+					&& Math.min(ay, by) <= Math.max(cy, dy);
+		}
+		return c * d <= 0 && a * b <= 0;
+	}
+
+	private static double orientation(final double ax, final double ay, final double bx, final double by, final double px, final double py) {
+		return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+	}
+
+	private static int takeEdge(final int[] next, final int from) {
+		final int to = next[from * 2];
+		next[from * 2] = next[from * 2 + 1];
+		next[from * 2 + 1] = -1;
+		return to;
+	}
+
+	/**
+	 * Vectorizes all regions of the given index
+	 */
+	public static RegionOutlines trace(final RegionIndex index) {
+		final List<List<float[]>> regions = IntStream.range(0, index.getRegionCount()).parallel().mapToObj(region -> trace(index, region)).toList();
+		return new RegionOutlines(index.getRegionNames(), index.getWidth(), index.getHeight(), regions);
+	}
+
+	private final List<String> names;
+	private final int width;
+	private final int height;
+	private final List<List<float[]>> regions;
+	// The ring edges are indexed in chunks, so a point query only visits the edges near the horizontal ray it casts
+	private final float[][] chunkRings;
+	private final int[] chunkRegions;
+	private final int[] chunkStarts;
+	private final RTree tree;
+
+	RegionOutlines(final List<String> names, final int width, final int height, final List<List<float[]>> regions) {
+		this.names = names;
+		this.width = width;
+		this.height = height;
+		this.regions = regions;
+
+		int chunks = 0;
+		for (final List<float[]> rings : regions) {
+			for (final float[] ring : rings) {
+				chunks += (ring.length / 2 + CHUNK_SIZE - 1) / CHUNK_SIZE;
+			}
+		}
+		chunkRings = new float[chunks][];
+		chunkRegions = new int[chunks];
+		chunkStarts = new int[chunks];
+		final float[] minX = new float[chunks];
+		final float[] minY = new float[chunks];
+		final float[] maxX = new float[chunks];
+		final float[] maxY = new float[chunks];
+
+		int chunk = 0;
+		for (int region = 0; region < regions.size(); ++region) {
+			for (final float[] ring : regions.get(region)) {
+				final int points = ring.length / 2;
+				for (int start = 0; start < points; start += CHUNK_SIZE, ++chunk) {
+					chunkRings[chunk] = ring;
+					chunkRegions[chunk] = region;
+					chunkStarts[chunk] = start;
+					minX[chunk] = minY[chunk] = Float.POSITIVE_INFINITY;
+					maxX[chunk] = maxY[chunk] = Float.NEGATIVE_INFINITY;
+					// Each chunk covers the edges starting at its points, including the edge closing the ring
+					for (int point = start; point <= Math.min(points, start + CHUNK_SIZE); ++point) {
+						final int index = point % points * 2;
+						minX[chunk] = Math.min(minX[chunk], ring[index]);
+						maxX[chunk] = Math.max(maxX[chunk], ring[index]);
+						minY[chunk] = Math.min(minY[chunk], ring[index + 1]);
+						maxY[chunk] = Math.max(maxY[chunk], ring[index + 1]);
+					}
+				}
+			}
+		}
+		tree = new RTree(minX, minY, maxX, maxY);
+	}
+
+	private int countCrossings(final int chunk, final double x, final double y) {
+		final float[] ring = chunkRings[chunk];
+		final int points = ring.length / 2;
+		final int start = chunkStarts[chunk];
+		int crossings = 0;
+		for (int point = start; point < Math.min(points, start + CHUNK_SIZE); ++point) {
+			final int i = point * 2;
+			final int j = (point + 1) % points * 2;
+			final float xi = ring[i], yi = ring[i + 1], xj = ring[j], yj = ring[j + 1];
+			if (yi > y != yj > y && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+				++crossings;
+			}
+		}
+		return crossings;
+	}
+
+	private boolean crossesChunk(final int chunk, final double x1, final double y1, final double x2, final double y2) {
+		final float[] ring = chunkRings[chunk];
+		final int points = ring.length / 2;
+		final int start = chunkStarts[chunk];
+		for (int point = start; point < Math.min(points, start + CHUNK_SIZE); ++point) {
+			final int i = point * 2;
+			final int j = (point + 1) % points * 2;
+			if (intersects(ring[i], ring[i + 1], ring[j], ring[j + 1], x1, y1, x2, y2)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Creates a path filling the given region
+	 */
+	public Path createPath(final int region) {
+		final List<PathElement> elements = new ArrayList<>();
+		for (final float[] ring : regions.get(region)) {
+			elements.add(new MoveTo(ring[0], ring[1]));
+			for (int point = 2; point < ring.length; point += 2) {
+				elements.add(new LineTo(ring[point], ring[point + 1]));
+			}
+			elements.add(new ClosePath());
+		}
+		final Path path = new Path(elements);
+		path.setFillRule(FillRule.EVEN_ODD);
+		path.setStroke(null);
+		return path;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	List<float[]> getRings(final int region) {
+		return regions.get(region);
+	}
+
+	public int getRegionCount() {
+		return regions.size();
+	}
+
+	public String getRegionName(final int region) {
+		return names.get(region);
+	}
+
+	public List<String> getRegionNames() {
+		return names;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the regions containing the given point
+	 *
+	 * @param x
+	 *            The x coordinate in map pixels
+	 * @param y
+	 *            The y coordinate in map pixels
+	 * @return The ordinals of the regions
+	 */
+	public BitSet regionsAt(final double x, final double y) {
+		final BitSet result = new BitSet(regions.size());
+		tree.query(x, y, Double.POSITIVE_INFINITY, y, chunk -> {
+			if ((countCrossings(chunk, x, y) & 1) != 0) {
+				result.flip(chunkRegions[chunk]);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Returns the regions touched by the straight line between two points. Instead of sampling points along the line, the regions at its start
+	 * are combined with all regions whose border it crosses, which covers every point of the line with a single tree query.
+	 *
+	 * @param x1
+	 *            The x coordinate of the start in map pixels
+	 * @param y1
+	 *            The y coordinate of the start in map pixels
+	 * @param x2
+	 *            The x coordinate of the end in map pixels
+	 * @param y2
+	 *            The y coordinate of the end in map pixels
+	 * @return The ordinals of the regions
+	 */
+	public BitSet regionsAlong(final double x1, final double y1, final double x2, final double y2) {
+		final BitSet result = regionsAt(x1, y1);
+		tree.query(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2), chunk -> {
+			final int region = chunkRegions[chunk];
+			if (!result.get(region) && crossesChunk(chunk, x1, y1, x2, y2)) {
+				result.set(region);
+			}
+		});
+		return result;
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.Polygon;
+
+/**
+ * Builds the overlays showing the regions of a plant from the region outlines, so they stay sharp at any zoom
+ */
+public class RegionOverlays {
+
+	// The map legend in the upper left corner is never covered
+	private static final int LEGEND_WIDTH = 500;
+	private static final int LEGEND_HEIGHT = 175;
+
+	private final RegionOutlines outlines;
+	private final Color tint;
+	private final Map<BitSet, Node> cache;
+
+	public RegionOverlays(final RegionOutlines outlines, final Color tint, final int cacheSize) {
+		this.outlines = outlines;
+		this.tint = tint;
+		cache = new LinkedHashMap<>(cacheSize, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<BitSet, Node> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	private Node createOverlay(final BitSet selected) {
+		final Group overlay = new Group();
+		for (int region = selected.nextSetBit(0); region >= 0 && region < outlines.getRegionCount(); region = selected.nextSetBit(region + 1)) {
+			final Path path = outlines.createPath(region);
+			path.setFill(tint);
+			overlay.getChildren().add(path);
+		}
+		final double width = outlines.getWidth();
+		final double height = outlines.getHeight();
+		overlay.setClip(new Polygon(LEGEND_WIDTH, 0, LEGEND_WIDTH, LEGEND_HEIGHT, 0, LEGEND_HEIGHT, 0, height, width, height, width, 0));
+		return overlay;
+	}
+
+	/**
+	 * Returns the overlay for the given regions, reusing it if it was requested recently
+	 *
+	 * @param selected
+	 *            The ordinals of the regions to show
+	 * @return The overlay, which may only be shown once at a time
+	 */
+	public Node getOverlay(final BitSet selected) {
+		Node overlay = cache.get(selected);
+		if (overlay == null) {
+			final BitSet key = (BitSet) selected.clone();
+			overlay = createOverlay(key);
+			cache.put(key, overlay);
+		}
+		return overlay;
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import dsatool.util.ErrorLogger;
+import javafx.geometry.Rectangle2D;
+
+/**
+ * A binary snapshot of the region index and outlines, compiled from the region masks at build time.
+ * It is memory mapped on startup and only used if the checksum of the masks still matches, otherwise the masks are decoded and traced again.
+ */
+public class RegionSnapshot {
+
+	public record Regions(RegionIndex index, RegionOutlines outlines) {}
+
+	private static final int MAGIC = 0x5A425253;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES;
+
+	private static void checkRemaining(final ByteBuffer buffer, final long count, final int size) {
+		if (count < 0 || count * size > buffer.remaining()) throw new IllegalStateException("Schnappschuss unvollständig");
+	}
+
+	/**
+	 * Computes the checksum of the region masks, covering their names and contents
+	 */
+	public static long checksum(final File[] files) throws IOException {
+		final CRC32C checksum = new CRC32C();
+		for (final File file : RegionIndex.getRegionFiles(files)) {
+			checksum.update(file.getName().getBytes(StandardCharsets.UTF_8));
+			checksum.update(Files.readAllBytes(file.toPath()));
+		}
+		return checksum.getValue();
+	}
+
+	/**
+	 * Returns the number of the following elements, checking that they fit into the rest of the snapshot
+	 *
+	 * @param size
+	 *            The minimum size of each element in bytes
+	 */
+	private static int getLength(final ByteBuffer buffer, final int size) {
+		final int length = buffer.getInt();
+		checkRemaining(buffer, length, size);
+		return length;
+	}
+
+	/**
+	 * Loads the regions from the first snapshot matching the masks, or from the masks themselves.
+	 * In the latter case a snapshot is written to the cache for the next start.
+	 *
+	 * @param files
+	 *            The region masks
+	 * @param shipped
+	 *            The snapshot shipped with the plugin
+	 * @param cache
+	 *            The snapshot written when the shipped one does not match
+	 * @return The regions
+	 */
+	public static Regions load(final File[] files, final File shipped, final File cache) {
+		long checksum = 0;
+		try {
+			checksum = checksum(files);
+			for (final File snapshot : new File[] { shipped, cache }) {
+				final Regions regions = read(snapshot, checksum);
+				if (regions != null) return regions;
+			}
+		} catch (final IOException e) {
+			ErrorLogger.logError(e);
+		}
+
+		final RegionIndex index = RegionIndex.load(files);
+		final Regions regions = new Regions(index, RegionOutlines.trace(index));
+		try {
+			write(cache, checksum, regions);
+		} catch (final IOException e) {
+			ErrorLogger.logError(e);
+		}
+		return regions;
+	}
+
+	/**
+	 * Writes a snapshot of the masks in the given directory, used as a build step
+	 *
+	 * @param args
+	 *            The directory of the region masks and the snapshot to write
+	 */
+	public static void main(final String[] args) throws IOException {
+		// The masks are decoded with ImageIO, so no display is needed on build machines
+		final File[] files = new File(args[0]).listFiles();
+		final RegionIndex index = RegionIndex.load(files);
+		write(new File(args[1]), checksum(files), new Regions(index, RegionOutlines.trace(index)));
+	}
+
+	private static Regions parse(final ByteBuffer buffer) {
+		final int width = buffer.getInt();
+		final int height = buffer.getInt();
+		if (width < 0 || height < 0) throw new IllegalStateException("Ungültige Kartengröße: " + width + "x" + height);
+		final int regionCount = getLength(buffer, Short.BYTES + 4 * Integer.BYTES);
+
+		final List<String> names = new ArrayList<>(regionCount);
+		for (int i = 0; i < regionCount; ++i) {
+			final int length = Short.toUnsignedInt(buffer.getShort());
+			checkRemaining(buffer, length, 1);
+			final byte[] name = new byte[length];
+			buffer.get(name);
+			names.add(new String(name, StandardCharsets.UTF_8));
+		}
+
+		final int[][] bounds = new int[regionCount][4];
+		for (final int[] regionBounds : bounds) {
+			for (int i = 0; i < 4; ++i) {
+				regionBounds[i] = buffer.getInt();
+			}
+			// Regions without pixels are stored with inverted bounds
+			final boolean empty = regionBounds[0] == Integer.MAX_VALUE && regionBounds[1] == Integer.MAX_VALUE && regionBounds[2] == Integer.MIN_VALUE
+					&& regionBounds[3] == Integer.MIN_VALUE;
+			if (!empty && (regionBounds[0] < 0 || regionBounds[0] > regionBounds[2] || regionBounds[2] >= width || regionBounds[1] < 0
+					|| regionBounds[1] > regionBounds[3] || regionBounds[3] >= height)) {
+				throw new IllegalStateException("Ungültige Gebietsgrenzen");
+			}
+		}
+
+		final BitSet[] combinations = new BitSet[getLength(buffer, Integer.BYTES)];
+		for (int i = 0; i < combinations.length; ++i) {
+			final long[] words = new long[getLength(buffer, Long.BYTES)];
+			buffer.asLongBuffer().get(words);
+			buffer.position(buffer.position() + words.length * Long.BYTES);
+			combinations[i] = BitSet.valueOf(words);
+			if (combinations[i].length() > regionCount) throw new IllegalStateException("Ungültige Gebietskombination: " + i);
+		}
+
+		// The labels are used in place, but checked once, as the checksum in the header only covers the masks
+		checkRemaining(buffer, (long) width * height, Character.BYTES);
+		final CharBuffer labels = buffer.slice(buffer.position(), width * height * Character.BYTES).asCharBuffer();
+		buffer.position(buffer.position() + width * height * Character.BYTES);
+		for (int i = 0; i < labels.limit(); ++i) {
+			if (labels.get(i) >= combinations.length) throw new IllegalStateException("Ungültige Gebietskombination an Pixel " + i);
+		}
+
+		final List<List<float[]>> rings = new ArrayList<>(regionCount);
+		for (int region = 0; region < regionCount; ++region) {
+			final int ringCount = getLength(buffer, Integer.BYTES);
+			final List<float[]> regionRings = new ArrayList<>(ringCount);
+			for (int i = 0; i < ringCount; ++i) {
+				final float[] ring = new float[getLength(buffer, Float.BYTES)];
+				if (ring.length % 2 != 0) throw new IllegalStateException("Ungültiger Umriss");
+				buffer.asFloatBuffer().get(ring);
+				buffer.position(buffer.position() + ring.length * Float.BYTES);
+				regionRings.add(ring);
+			}
+			rings.add(regionRings);
+		}
+
+		return new Regions(new RegionIndex(names, width, height, labels, combinations, bounds), new RegionOutlines(names, width, height, rings));
+	}
+
+	/**
+	 * Maps a snapshot
+	 *
+	 * @param snapshot
+	 *            The snapshot file
+	 * @param checksum
+	 *            The checksum of the current region masks
+	 * @return The regions or null if there is no snapshot or it is outdated or corrupt
+	 */
+	public static Regions read(final File snapshot, final long checksum) throws IOException {
+		if (!snapshot.isFile()) return null;
+
+		final MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+			// Outdated snapshots are never mapped, as a mapped file cannot be replaced on all systems
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) return null;
+			}
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getLong() != checksum) return null;
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.position(HEADER_SIZE);
+
+		try {
+			return parse(buffer);
+		} catch (final RuntimeException e) {
+			// A truncated or corrupt snapshot is treated like a missing one, so the regions are loaded from the masks
+			ErrorLogger.logError(e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a snapshot, replacing the previous one only once it is complete
+	 *
+	 * @param snapshot
+	 *            The snapshot file
+	 * @param checksum
+	 *            The checksum of the region masks
+	 * @param regions
+	 *            The regions compiled from the masks
+	 */
+	public static void write(final File snapshot, final long checksum, final Regions regions) throws IOException {
+		final RegionIndex index = regions.index();
+		final RegionOutlines outlines = regions.outlines();
+		final File parent = snapshot.getAbsoluteFile().getParentFile();
+		parent.mkdirs();
+		final File temporary = File.createTempFile(snapshot.getName(), ".tmp", parent);
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary.toPath()), 1 << 16))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(checksum);
+				out.writeInt(index.getWidth());
+				out.writeInt(index.getHeight());
+				out.writeInt(index.getRegionCount());
+
+				for (final String name : index.getRegionNames()) {
+					final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+					out.writeShort(bytes.length);
+					out.write(bytes);
+				}
+
+				for (int region = 0; region < index.getRegionCount(); ++region) {
+					final Rectangle2D bounds = index.getBounds(region);
+					if (bounds == null) {
+						out.writeInt(Integer.MAX_VALUE);
+						out.writeInt(Integer.MAX_VALUE);
+						out.writeInt(Integer.MIN_VALUE);
+						out.writeInt(Integer.MIN_VALUE);
+					} else {
+						out.writeInt((int) bounds.getMinX());
+						out.writeInt((int) bounds.getMinY());
+						out.writeInt((int) bounds.getMaxX() - 1);
+						out.writeInt((int) bounds.getMaxY() - 1);
+					}
+				}
+
+				out.writeInt(index.getCombinationCount());
+				for (int label = 0; label < index.getCombinationCount(); ++label) {
+					final long[] words = index.getCombination(label).toLongArray();
+					out.writeInt(words.length);
+					for (final long word : words) {
+						out.writeLong(word);
+					}
+				}
+
+				final CharBuffer labels = index.getLabels();
+				final ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+				while (labels.hasRemaining()) {
+					chunk.clear();
+					while (labels.hasRemaining() && chunk.remaining() >= Character.BYTES) {
+						chunk.putChar(labels.get());
+					}
+					out.write(chunk.array(), 0, chunk.position());
+				}
+
+				for (int region = 0; region < outlines.getRegionCount(); ++region) {
+					final List<float[]> rings = outlines.getRings(region);
+					out.writeInt(rings.size());
+					for (final float[] ring : rings) {
+						out.writeInt(ring.length);
+						for (final float coordinate : ring) {
+							out.writeFloat(coordinate);
+						}
+					}
+				}
+			}
+			Files.move(temporary.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temporary.delete();
+		}
+	}
+}
@@ -19,6 +19,7 @@ import dsatool.credits.Credits;
 import dsatool.gui.Main;
 import dsatool.plugins.Plugin;
 import dsatool.util.Util;
+import javafx.scene.control.Label;
 
 /**
  * A plugin for animal and plant data
@@ -27,7 +28,7 @@ import dsatool.util.Util;
  */
 public class Zoobotanical extends Plugin {
 
-	private ZoobotanicalController controller;
+	private final ZoobotanicalModel model = new ZoobotanicalModel();
 
 	/*
 	 * (non-Javadoc)
@@ -49,10 +50,9 @@ public class Zoobotanical extends Plugin {
 		Credits.credits.add(new Credits("Aventurienkarten Originale und Bearbeitungen des Ulisses-Spiele Kartenpakets", "Lizenzvereinbarung",
 				Util.getAppDir() + "/licenses/Lizenzvereinbarung-Kartenpaket.txt", "https://de.wiki-aventurica.de/wiki/Kartenpaket/Lizenz",
 				Util.getAppDir() + "/resources/logos/Fanprojekt.png"));
-		Main.addDetachableToolComposite("DSA", "Pflanzen", 900, 850, () -> {
-			controller = new ZoobotanicalController();
-			return controller.getRoot();
-		});
+		Main.addDetachableToolComposite("DSA", "Pflanzen", 900, 850, () -> ZoobotanicalController.create(model).getRoot());
+		Main.addDetachableToolComposite("DSA", "Tiere", 900, 850,
+				() -> model.getAnimals() == null ? new Label("Keine Tierdaten vorhanden") : new AnimalController(model).getRoot());
 	}
 
 	/*
@@ -61,6 +61,8 @@ public class Zoobotanical extends Plugin {
 	 * @see plugins.Plugin#load()
 	 */
 	@Override
-	public void load() {}
+	public void load() {
+		model.warm();
+	}
 
 }
\ No newline at end of file
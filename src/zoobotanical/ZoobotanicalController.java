@@ -15,367 +15,79 @@
  */
 package zoobotanical;
 
-import java.io.File;
-import java.net.MalformedURLException;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Stream;
-
-import org.controlsfx.control.textfield.CustomTextField;
-
-import dsa41basis.util.DSAUtil;
-import dsatool.gui.GUIUtil;
-import dsatool.resources.ResourceManager;
-import dsatool.ui.ReactiveComboBox;
-import dsatool.util.ErrorLogger;
-import dsatool.util.Tuple;
-import dsatool.util.Util;
-import javafx.beans.Observable;
 import javafx.beans.binding.Bindings;
-import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.ReadOnlyObjectProperty;
-import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.value.ChangeListener;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.collections.ObservableSet;
-import javafx.collections.transformation.FilteredList;
-import javafx.collections.transformation.SortedList;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.geometry.Bounds;
-import javafx.scene.Group;
-import javafx.scene.Node;
-import javafx.scene.chart.PieChart;
 import javafx.scene.control.Button;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
-import javafx.scene.control.ListView;
 import javafx.scene.control.MenuItem;
-import javafx.scene.control.MultipleSelectionModel;
-import javafx.scene.control.ScrollPane;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
-import javafx.scene.control.TableView;
-import javafx.scene.control.ToggleButton;
-import javafx.scene.control.Tooltip;
-import javafx.scene.control.cell.TextFieldTableCell;
-import javafx.scene.effect.BlendMode;
-import javafx.scene.effect.Glow;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
-import javafx.scene.input.MouseButton;
-import javafx.scene.input.MouseEvent;
-import javafx.scene.input.ScrollEvent;
-import javafx.scene.layout.VBox;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Polygon;
-import jsonant.value.JSONArray;
-import jsonant.value.JSONObject;
+import javafx.scene.layout.HBox;
 import zoobotanical.harvest.HarvestDialog;
+import zoobotanical.harvest.HarvestPlanDialog;
 
-public class ZoobotanicalController {
-	@FXML
-	private Node pane;
-	@FXML
-	private ScrollPane mapPane;
-	@FXML
-	private Group map;
-	@FXML
-	private Group mapRegions;
-	@FXML
-	private Label locationMarker;
-
-	@FXML
-	private ListView<JSONObject> plantList;
-	@FXML
-	private CustomTextField search;
-	@FXML
-	private ToggleButton sortedToggle;
-
+public class ZoobotanicalController extends CatalogController<Plant> {
 	@FXML
-	private VBox plantBox;
+	private HBox identificationBox;
 	@FXML
 	private Label identification;
 	@FXML
-	private Label harvestInfo;
-	@FXML
 	private Button harvestButton;
 	@FXML
-	private TableView<String> prevalenceTable;
-	@FXML
-	private TableColumn<String, String> prevalenceTerrainColumn;
-	@FXML
-	private TableColumn<String, Integer> prevalenceDifficultyColumn;
-	@FXML
-	private ReactiveComboBox<String> terrainList;
-	@FXML
 	private Button harvestAnyButton;
-
 	@FXML
-	private Label harvestLabel;
+	private Button planButton;
 	@FXML
-	private PieChart plantMonths;
-
-	private final DoubleProperty scale = new SimpleDoubleProperty(1.0);
-	private double scaleMinimum = 0;
-
-	private Tuple<Double, Double> location = new Tuple<>(-1d, -1d);
-	private PieChart.Data harvestTime = null;
-
-	private final Map<String, Image> regions;
-	private final Map<String, Boolean> locationInRegion;
-
-	private final JSONObject plants = ResourceManager.getResource("data/Pflanzen");
-	private final ObservableSet<JSONObject> availablePlants = FXCollections.observableSet();
-	private final ObservableList<JSONObject> allPlants = FXCollections.observableArrayList(_ -> new Observable[] { availablePlants });
-
-	private final ReadOnlyObjectProperty<JSONObject> selectedPlant;
-
-	private final ReadOnlyObjectProperty<String> selectedTerrain;
-
-	public ZoobotanicalController() {
-		final FXMLLoader fxmlLoader = new FXMLLoader();
-
-		fxmlLoader.setController(this);
-
-		try {
-			fxmlLoader.load(getClass().getResource("Zoobotanical.fxml").openStream());
-		} catch (final Exception e) {
-			ErrorLogger.logError(e);
-		}
+	private TableColumn<String, Integer> prevalenceDifficultyColumn;
 
-		setupMap();
+	private final PlantCatalog plants;
+	private HarvestPlanDialog planDialog = null;
 
-		final File[] regionFiles = new File(Util.getAppDir() + "/resources/images/maps/regions").listFiles();
-		regions = new HashMap<>(regionFiles.length);
-		locationInRegion = new HashMap<>(regionFiles.length);
-		setupRegions(regionFiles);
+	/**
+	 * Loads the view of the plants and wires its handlers once it is fully constructed
+	 */
+	public static ZoobotanicalController create(final ZoobotanicalModel model) {
+		final ZoobotanicalController controller = new ZoobotanicalController(model);
+		controller.setupHandlers();
+		return controller;
+	}
 
-		selectedPlant = plantList.getSelectionModel().selectedItemProperty();
-		selectedPlant.addListener((_, _, newV) -> selectPlant(newV));
-		setupPlants();
+	private ZoobotanicalController(final ZoobotanicalModel model) {
+		super(model, model.getPlants(), "Pflanzen:", "Ernte: ", "Pflanzenvielfalt anzeigen");
+		plants = model.getPlants();
 
-		terrainList.getItems().setAll(ZoobotanicalUtil.terrains);
-		terrainList.getSelectionModel().select(0);
-		selectedTerrain = terrainList.getSelectionModel().selectedItemProperty();
-		selectedTerrain.addListener((_, _, _) -> updateAvailablePlants());
-		harvestAnyButton.disableProperty().bind(selectedPlant.isNotNull().or(selectedTerrain.isEqualTo("Beliebiges Gelände")));
+		identificationBox.setVisible(true);
+		identificationBox.setManaged(true);
+		harvestAnyButton.setVisible(true);
+		harvestAnyButton.setManaged(true);
+		prevalenceDifficultyColumn.setVisible(true);
 	}
 
-	public Node getRoot() {
-		return pane;
+	@Override
+	protected void filterChanged() {
+		updatePlan();
 	}
 
-	@FXML
 	private void harvestAnyPlant() {
-		new HarvestDialog(pane.getScene().getWindow(), plants, null, selectedTerrain.get(), harvestTime == null ? null : harvestTime.getName(),
-				locationInRegion);
+		new HarvestDialog(pane.getScene().getWindow(), plants, null, selectedTerrain.get(), getMonth(), getLocationRegions());
 	}
 
-	@FXML
 	private void harvestPlant() {
 		final String terrain = selectedTerrain.get();
-		new HarvestDialog(pane.getScene().getWindow(), plants, selectedPlant.get(), "Beliebiges Gelände".equals(terrain) ? null : terrain,
-				harvestTime == null ? null : harvestTime.getName(), locationInRegion);
-	}
-
-	public void selectHarvestTime(final PieChart.Data selected) {
-		harvestTime = selected;
-		plantMonths.getData().forEach(month -> {
-			if (month != selected) {
-				month.getNode().setEffect(null);
-			}
-		});
-		harvestLabel.setText("Ernte: " + (selected != null ? selected.getName() : ""));
-		updateAvailablePlants();
-	}
-
-	private void selectLocation(final Tuple<Double, Double> newLocation) {
-		final double x = newLocation._1;
-		final double y = newLocation._2;
-
-		location = newLocation;
-
-		if (x >= 0) {
-			for (final String region : regions.keySet()) {
-				locationInRegion.put(region, regions.get(region).getPixelReader().getColor((int) x, (int) y).equals(Color.BLACK));
-			}
-		} else {
-			for (final String region : regions.keySet()) {
-				locationInRegion.put(region, true);
-			}
-		}
-
-		updateAvailablePlants();
-
-		final Bounds mapBounds = map.getBoundsInLocal();
-		locationMarker.relocate((x - mapBounds.getWidth() / 2) * scale.get() + mapBounds.getWidth() / 2 - 15,
-				(y - mapBounds.getHeight() / 2) * scale.get() + mapBounds.getHeight() / 2 - 15);
-
-		locationMarker.setVisible(x >= 0);
-	}
-
-	private void selectPlant(final JSONObject plant) {
-		plantBox.setVisible(plant != null);
-		plantBox.setManaged(plant != null);
-		mapRegions.getChildren().clear();
-		if (plant == null) {
-			prevalenceTable.getItems().clear();
-			plantMonths.getData().forEach(month -> month.getNode().setOpacity(1));
-			harvestInfo.setVisible(false);
-		} else {
-			identification.setText(plant.getIntOrDefault("Bestimmung", Integer.MIN_VALUE).toString());
-
-			final Set<String> prevalence = plant.getObj("Verbreitung").keySet();
-			prevalenceTable.getItems().setAll(prevalence);
-			prevalenceTable.setVisible(!prevalence.isEmpty());
-			prevalenceTable.setManaged(!prevalence.isEmpty());
-
-			mapRegions.getChildren().addAll(plant.getArr("Gebiet").getStrings().stream().map(region -> new ImageView(regions.get(region))).toList());
-
-			final JSONArray harvest = plant.getArrOrDefault("Ernte", null);
-			harvestButton.setVisible(harvest != null);
-			harvestButton.setManaged(harvest != null);
-			plantMonths.getData().forEach(month -> month.getNode().setOpacity(harvest == null || harvest.contains(month.getName()) ? 1 : 0.075));
-
-			final String notes = plant.getString("Anmerkungen");
-			if (notes != null) {
-				harvestInfo.setTooltip(new Tooltip(notes));
-				harvestInfo.setVisible(true);
-			} else {
-				harvestInfo.setVisible(false);
-			}
-
-			plantList.scrollTo(plant);
-		}
-	}
-
-	private void setupMap() {
-		map.scaleXProperty().bind(scale);
-		map.scaleYProperty().bind(scale);
-
-		final Image mapImage = ((ImageView) map.getChildren().get(0)).getImage();
-		final double mapWidth = mapImage.getWidth();
-		final double mapHeight = mapImage.getHeight();
-
-		mapPane.addEventFilter(ScrollEvent.ANY, e -> {
-			double scaleFactor = Math.exp(e.getDeltaY() * 0.005);
-			final double newScale = Math.min(Math.max(scale.get() * scaleFactor, scaleMinimum), 10);
-			scaleFactor = newScale / scale.get();
-
-			final Bounds viewport = mapPane.getViewportBounds();
-			final Bounds mapBounds = map.getBoundsInParent();
-
-			final double relativeX = (mapBounds.getWidth() - viewport.getWidth()) * mapPane.getHvalue() + e.getX();
-			final double relativeY = (mapBounds.getHeight() - viewport.getHeight()) * mapPane.getVvalue() + e.getY();
-
-			scale.set(newScale);
-
-			mapPane.setHvalue((relativeX * scaleFactor - e.getX()) / (mapBounds.getWidth() * scaleFactor - viewport.getWidth()));
-			mapPane.setVvalue((relativeY * scaleFactor - e.getY()) / (mapBounds.getHeight() * scaleFactor - viewport.getHeight()));
-
-			selectLocation(location);
-
-			e.consume();
-		});
-
-		mapPane.maxWidthProperty().bind(mapImage.widthProperty().multiply(scale));
-
-		@SuppressWarnings("unchecked")
-		final ChangeListener<? super Number> setInitialScale[] = new ChangeListener[1];
-		setInitialScale[0] = (_, _, _) -> {
-			final double initialScale = Math.max(mapPane.getWidth() / mapWidth, mapPane.getHeight() / mapHeight);
-			scaleMinimum = initialScale;
-			scale.set(initialScale);
-			mapPane.heightProperty().removeListener(setInitialScale[0]);
-
-			mapPane.setHvalue(0.5);
-			mapPane.setVvalue(0.5);
-		};
-		mapPane.heightProperty().addListener(setInitialScale[0]);
-
-		map.setOnMouseClicked(e -> {
-			if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2) {
-				selectLocation(new Tuple<>(e.getX(), e.getY()));
-			} else if (e.getButton() == MouseButton.SECONDARY && e.getClickCount() == 2) {
-				selectLocation(new Tuple<>(-1d, -1d));
-			}
-		});
-
-		final Polygon mask = new Polygon(500, 0, 500, 175, 0, 175, 0, mapHeight, mapWidth, mapHeight, mapWidth, 0);
-		mask.setFill(Color.TURQUOISE);
-		mask.setBlendMode(BlendMode.SRC_ATOP);
-		((Group) mapRegions.getParent()).getChildren().add(mask);
+		new HarvestDialog(pane.getScene().getWindow(), plants, selectedEntry.get(), "Beliebiges Gelände".equals(terrain) ? null : terrain, getMonth(),
+				getLocationRegions());
 	}
 
-	void setupPlants() {
-		for (final String name : plants.keySet()) {
-			allPlants.add(plants.getObj(name));
-			availablePlants.add(plants.getObj(name));
-		}
-
-		plantList.setCellFactory(list -> {
-			final ListCell<JSONObject> cell = new ListCell<>() {
-				@Override
-				public void updateItem(final JSONObject item, final boolean empty) {
-					super.updateItem(item, empty);
-					if (empty) {
-						setText(null);
-						setStyle("");
-						setTooltip(null);
-						setGraphic(null);
-					} else {
-						final JSONArray plantType = ZoobotanicalUtil.setPlantNameType(this, plants, item);
-						String typeString = plantType.getStrings().toString();
-						typeString = typeString.substring(1, typeString.length() - 1);
-						setTooltip(new Tooltip(typeString));
-
-						Util.addReference(this, item, 35, plantList.widthProperty());
-					}
-				}
-			};
-			cell.addEventHandler(MouseEvent.MOUSE_PRESSED, event -> {
-				list.requestFocus();
-				final MultipleSelectionModel<JSONObject> selectionModel = list.getSelectionModel();
-				if (cell.isEmpty() || event.getButton() == MouseButton.SECONDARY) {
-					selectionModel.clearSelection();
-					event.consume();
-				} else if (event.getButton() == MouseButton.PRIMARY) {
-					final int index = cell.getIndex();
-					if (selectionModel.getSelectedIndices().contains(index)) {
-						selectionModel.clearSelection(index);
-					} else {
-						selectionModel.select(index);
-					}
-					event.consume();
-				}
-			});
-			return cell;
-		});
-
-		final List<String> allPlantNames = plants.keySet().stream().toList();
-
-		final SortedList<JSONObject> sortedPlants = new SortedList<>(new FilteredList<>(allPlants, availablePlants::contains), (_, _) -> -1);
-		sortedToggle.selectedProperty().addListener((_, _, newV) -> {
-			sortedPlants.setComparator(newV ? (left, right) -> plants.keyOf(left).compareTo(plants.keyOf(right))
-					: (left, right) -> allPlantNames.indexOf(plants.keyOf(left)) - allPlantNames.indexOf(plants.keyOf(right)));
-		});
-		plantList.setItems(sortedPlants);
-
-		search.textProperty().addListener((_, _, _) -> {
-			updateAvailablePlants();
-		});
+	private void setupHandlers() {
+		harvestButton.setOnAction(_ -> harvestPlant());
+		harvestAnyButton.setOnAction(_ -> harvestAnyPlant());
+		planButton.setOnAction(_ -> showPlan());
+		harvestAnyButton.disableProperty().bind(selectedEntry.isNotNull().or(selectedTerrain.isEqualTo("Beliebiges Gelände")));
 
-		plantBox.setVisible(false);
-		plantBox.setManaged(false);
-
-		GUIUtil.autosizeTable(prevalenceTable);
+		selectedEntry.addListener((_, _, _) -> updatePlan());
 
 		prevalenceTable.setRowFactory(_ -> {
 			final TableRow<String> row = new TableRow<>();
@@ -384,109 +96,50 @@ public class ZoobotanicalController {
 			final MenuItem harvestItem = new MenuItem("Kräuter Suchen");
 			harvestItem.setOnAction(_ -> {
 				final String item = row.getItem();
-				final JSONObject plant = selectedPlant.get();
-				new HarvestDialog(pane.getScene().getWindow(), plants, plant, item, harvestTime == null ? null : harvestTime.getName(), locationInRegion);
+				final Plant plant = selectedEntry.get();
+				new HarvestDialog(pane.getScene().getWindow(), plants, plant, item, getMonth(), getLocationRegions());
 			});
 			menu.getItems().add(harvestItem);
 
 			row.contextMenuProperty().bind(
-					Bindings.createObjectBinding(() -> selectedPlant.get() != null && selectedPlant.get().containsKey("Ernte") ? menu : null, selectedPlant));
+					Bindings.createObjectBinding(() -> selectedEntry.get() != null && selectedEntry.get().isHarvestable() ? menu : null, selectedEntry));
 			return row;
 		});
 
-		prevalenceTerrainColumn.setCellFactory(_ -> new TextFieldTableCell<String, String>() {
-			@Override
-			public void updateItem(final String item, final boolean empty) {
-				super.updateItem(item, empty);
-				if (empty) {
-					setText(null);
-					setStyle("");
-					setTooltip(null);
-				} else {
-					setText(item);
-					final String prevalence = selectedPlant.get().getObjOrDefault("Verbreitung", new JSONObject(null)).getString(item);
-					final String prevalenceColor = switch (prevalence) {
-						case "sehr häufig" -> "green";
-						case "häufig" -> "limegreen";
-						case "gelegentlich" -> "orange";
-						case "selten" -> "orangered";
-						case "sehr selten" -> "crimson";
-						default -> "black";
-					};
-					setStyle("-fx-text-fill: " + prevalenceColor);
-					setTooltip(new Tooltip(prevalence));
-				}
-			}
-		});
-		prevalenceTerrainColumn.setCellValueFactory(e -> {
-			return new SimpleStringProperty(e.getValue());
-		});
-
 		prevalenceDifficultyColumn.setCellValueFactory(e -> {
-			final int difficulty = ZoobotanicalUtil.getDifficulty(selectedPlant.get(), e.getValue());
-			return new SimpleIntegerProperty(selectedPlant.get().getIntOrDefault("Bestimmung", Integer.MAX_VALUE - difficulty) + difficulty).asObject();
+			return new SimpleIntegerProperty(ZoobotanicalUtil.getSearchDifficulty(selectedEntry.get(), plants.getTerrainOrdinal(e.getValue()))).asObject();
 		});
+	}
 
-		harvestInfo.setVisible(false);
-
-		plantMonths.getData().addAll(Stream.of(DSAUtil.months).map(month -> new PieChart.Data(month, "Namenloser".equals(month) ? 5 : 30)).toList());
-		plantMonths.getStylesheets().add("""
-				data:text/css,
-				.chart-pie {
-					-fx-background-insets: -0.1;
-					-fx-border-width: 0;
-				}
-				""");
-		plantMonths.getData().forEach(month -> {
-			final Node node = month.getNode();
-			node.setStyle("-fx-pie-color: " + DSAUtil.monthColors.get(month.getName()) + ";");
-
-			Tooltip.install(node, new Tooltip(month.getName()));
+	@Override
+	protected void showEntry(final Plant plant) {
+		identification.setText(Integer.toString(plant.getIdentification()));
 
-			node.addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
-				if (node.getEffect() != null || e.getButton() == MouseButton.SECONDARY) {
-					selectHarvestTime(null);
-				} else if (node.getOpacity() == 1.0 && e.getButton() == MouseButton.PRIMARY) {
-					selectHarvestTime(month);
-					node.setEffect(new Glow(1.0));
-				}
-			});
-		});
+		final boolean harvestable = plant.isHarvestable();
+		harvestButton.setVisible(harvestable);
+		harvestButton.setManaged(harvestable);
+		planButton.setVisible(harvestable);
+		planButton.setManaged(harvestable);
 	}
 
-	private void setupRegions(final File[] files) {
-		if (files != null) {
-			for (final File file : files) {
-				if (file.isFile()) {
-					final String fileName = file.getName();
-					final String name = fileName.substring(0, fileName.indexOf('.'));
-					try {
-						regions.put(name, new Image(file.toURI().toURL().toString()));
-						locationInRegion.put(name, true);
-					} catch (final MalformedURLException e) {
-						// Nothing to do here
-					}
-				}
-			}
+	private void showPlan() {
+		if (planDialog == null || !planDialog.isShowing()) {
+			planDialog = new HarvestPlanDialog(pane.getScene().getWindow(), plants);
+		} else {
+			planDialog.toFront();
 		}
+		updatePlan();
 	}
 
-	@FXML
-	private void toggleSorted() {
-		sortedToggle.getParent().requestFocus();
+	@Override
+	protected void updateCell(final ListCell<Plant> cell, final Plant plant) {
+		ZoobotanicalUtil.setPlantNameType(cell, plant);
+		cell.setTooltip(ZoobotanicalUtil.getTypeTooltip(plant));
 	}
 
-	private void updateAvailablePlants() {
-		for (final JSONObject plant : allPlants) {
-			if (ZoobotanicalUtil.isAvailable(plant, harvestTime == null ? null : harvestTime.getName(), selectedTerrain.get(), locationInRegion)
-					&& plants.keyOf(plant).toLowerCase().contains(search.getText().toLowerCase())) {
-				availablePlants.add(plant);
-			} else {
-				if (plant == selectedPlant.get()) {
-					plantList.getSelectionModel().clearSelection();
-				}
-				availablePlants.remove(plant);
-			}
+	private void updatePlan() {
+		if (planDialog != null && planDialog.isShowing()) {
+			planDialog.update(selectedEntry.get(), getMonth(), getLocationRegions());
 		}
 	}
 }
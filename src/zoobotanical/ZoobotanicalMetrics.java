@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Timers and counters for the slow operations of the plugin. Every measurement is kept in memory for the diagnostics dialog and also emitted as a
+ * JFR event, so a recording taken in the field shows the operations next to the rest of the application.
+ */
+public class ZoobotanicalMetrics {
+
+	public enum Operation {
+		FXML("FXML laden"),
+		REGIONS("Regionen laden"),
+		LOCATION("Ort bestimmen"),
+		ROUTE_LEG("Reiseabschnitt bestimmen"),
+		AVAILABLE_ENTRIES("Verfügbare Einträge"),
+		HARVEST_DIALOG("Erntedialog öffnen"),
+		HARVEST_UPDATE("Ernte auswerten");
+
+		public final String name;
+
+		private Operation(final String name) {
+			this.name = name;
+		}
+	}
+
+	@Name("zoobotanical.Operation")
+	@Label("Zoobotanical Operation")
+	@Category("Zoobotanical")
+	@StackTrace(false)
+	private static class OperationEvent extends Event {
+		@Label("Operation")
+		String operation;
+		@Label("Entries Scanned")
+		int scanned;
+		@Label("Entries Changed")
+		int changed;
+	}
+
+	private static class Statistics {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+		private final LongAdder scanned = new LongAdder();
+		private final LongAdder changed = new LongAdder();
+
+		private void reset() {
+			count.reset();
+			nanos.reset();
+			maxNanos.reset();
+			scanned.reset();
+			changed.reset();
+		}
+	}
+
+	/**
+	 * A running measurement of a single operation
+	 */
+	public static class Timer {
+		private final Operation operation;
+		private final OperationEvent event = new OperationEvent();
+		private final long start;
+
+		private Timer(final Operation operation) {
+			this.operation = operation;
+			event.begin();
+			start = System.nanoTime();
+		}
+
+		public void stop() {
+			stop(0, 0);
+		}
+
+		/**
+		 * Ends the measurement
+		 *
+		 * @param scanned
+		 *            The number of entries or regions looked at
+		 * @param changed
+		 *            The number of entries whose state changed
+		 */
+		public void stop(final int scanned, final int changed) {
+			final long duration = System.nanoTime() - start;
+			final Statistics operationStatistics = statistics[operation.ordinal()];
+			operationStatistics.count.increment();
+			operationStatistics.nanos.add(duration);
+			operationStatistics.maxNanos.accumulate(duration);
+			operationStatistics.scanned.add(scanned);
+			operationStatistics.changed.add(changed);
+
+			event.end();
+			if (event.shouldCommit()) {
+				event.operation = operation.name();
+				event.scanned = scanned;
+				event.changed = changed;
+				event.commit();
+			}
+		}
+	}
+
+	private static final Statistics[] statistics = new Statistics[Operation.values().length];
+
+	static {
+		for (int i = 0; i < statistics.length; ++i) {
+			statistics[i] = new Statistics();
+		}
+	}
+
+	/**
+	 * Writes the current statistics to a text file
+	 */
+	public static void dump(final Path file) throws IOException {
+		Files.writeString(file, "Zoobotanical " + LocalDateTime.now().withNano(0).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + System.lineSeparator() + format());
+	}
+
+	/**
+	 * Returns the current statistics as a table with one line per operation
+	 */
+	public static String format() {
+		final StringBuilder result = new StringBuilder();
+		result.append(String.format(Locale.GERMANY, "%-22s %8s %12s %12s %12s %10s %10s%n", "Vorgang", "Anzahl", "Gesamt (ms)", "Mittel (ms)", "Max (ms)",
+				"Geprüft", "Geändert"));
+		for (final Operation operation : Operation.values()) {
+			final Statistics operationStatistics = statistics[operation.ordinal()];
+			final long count = operationStatistics.count.sum();
+			final double total = operationStatistics.nanos.sum() / 1e6;
+			result.append(String.format(Locale.GERMANY, "%-22s %8d %12.2f %12.2f %12.2f %10d %10d%n", operation.name, count, total,
+					count == 0 ? 0 : total / count, operationStatistics.maxNanos.get() / 1e6, operationStatistics.scanned.sum(),
+					operationStatistics.changed.sum()));
+		}
+		return result.toString();
+	}
+
+	public static void reset() {
+		for (final Statistics operationStatistics : statistics) {
+			operationStatistics.reset();
+		}
+	}
+
+	/**
+	 * Starts measuring an operation, the returned timer must be stopped once it is done
+	 */
+	public static Timer start(final Operation operation) {
+		return new Timer(operation);
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import dsatool.resources.ResourceManager;
+import dsatool.util.ErrorLogger;
+import dsatool.util.Util;
+import jsonant.value.JSONObject;
+import zoobotanical.ZoobotanicalMetrics.Operation;
+import zoobotanical.ZoobotanicalMetrics.Timer;
+
+/**
+ * The data shared by all views of the plugin: the plant and animal catalogs with their indexes and caches, the map tiles and the regions.
+ * Everything is loaded once on first use and may be accessed from any thread.
+ */
+public class ZoobotanicalModel {
+
+	private static final ExecutorService loader = Executors.newVirtualThreadPerTaskExecutor();
+
+	private final File regionDirectory = new File(Util.getAppDir() + "/resources/images/maps/regions");
+
+	private PlantCatalog plants;
+	private AnimalCatalog animals;
+	private CompletableFuture<MapTiles> mapTiles;
+	private CompletableFuture<RegionSnapshot.Regions> regions;
+	private final Map<Catalog<?>, CompletableFuture<DiversityHeatmap>> heatmaps = new HashMap<>();
+
+	/**
+	 * Returns the animals or null if there is no animal data
+	 */
+	public synchronized AnimalCatalog getAnimals() {
+		if (animals == null) {
+			final JSONObject data = ResourceManager.getResource("data/Tiere");
+			if (data == null) return null;
+			animals = new AnimalCatalog(data, RegionIndex.getRegionNames(regionDirectory.listFiles()));
+		}
+		return animals;
+	}
+
+	/**
+	 * Returns the diversity heatmap of the given catalog, which is created in the background once the regions are loaded.
+	 * A heatmap that failed to load is created again on the next call.
+	 */
+	public synchronized CompletableFuture<DiversityHeatmap> getHeatmap(final Catalog<?> catalog) {
+		CompletableFuture<DiversityHeatmap> heatmap = heatmaps.get(catalog);
+		if (heatmap == null || heatmap.isCompletedExceptionally()) {
+			heatmap = getRegions().thenApplyAsync(loaded -> new DiversityHeatmap(loaded.index(), catalog.getIndex(), 16), loader);
+			heatmaps.put(catalog, heatmap);
+		}
+		return heatmap;
+	}
+
+	/**
+	 * Returns the map tiles, which are loaded in the background
+	 */
+	public synchronized CompletableFuture<MapTiles> getMapTiles() {
+		if (mapTiles == null) {
+			mapTiles = CompletableFuture.supplyAsync(() -> {
+				try {
+					return MapTiles.load(new File(Util.getAppDir() + "/resources/images/maps/Aventurien.jpg"), new File(Util.getAppDir() + "/cache/Zoobotanical"));
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, loader);
+		}
+		return mapTiles;
+	}
+
+	public synchronized PlantCatalog getPlants() {
+		return plants != null ? plants : getPlants(ResourceManager.getResource("data/Pflanzen"));
+	}
+
+	/**
+	 * Compiles the plants from data that was already fetched, so the resource manager is only used by the calling thread
+	 */
+	private synchronized PlantCatalog getPlants(final JSONObject data) {
+		if (plants == null) {
+			plants = new PlantCatalog(data, RegionIndex.getRegionNames(regionDirectory.listFiles()));
+		}
+		return plants;
+	}
+
+	/**
+	 * Returns the region index and outlines, which are loaded in the background
+	 */
+	public synchronized CompletableFuture<RegionSnapshot.Regions> getRegions() {
+		if (regions == null) {
+			regions = CompletableFuture.supplyAsync(() -> {
+				final Timer timer = ZoobotanicalMetrics.start(Operation.REGIONS);
+				final RegionSnapshot.Regions result = RegionSnapshot.load(regionDirectory.listFiles(),
+						new File(Util.getAppDir() + "/resources/images/maps/regions.snapshot"),
+						new File(Util.getAppDir() + "/cache/Zoobotanical/regions.snapshot"));
+				timer.stop(result.outlines().getRegionCount(), 0);
+				return result;
+			}, loader);
+		}
+		return regions;
+	}
+
+	/**
+	 * Starts loading everything in the background, so the first view opens without delay.
+	 * The plant data is fetched on the calling thread, as the resource manager is shared with the other plugins.
+	 */
+	public void warm() {
+		getMapTiles();
+		getRegions();
+		final JSONObject data = ResourceManager.getResource("data/Pflanzen");
+		loader.execute(() -> {
+			try {
+				getPlants(data).getSearch();
+			} catch (final RuntimeException e) {
+				ErrorLogger.logError(e);
+			}
+		});
+	}
+}
@@ -15,86 +15,119 @@
  */
 package zoobotanical;
 
-import java.util.Collection;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.WeakHashMap;
 
-import dsatool.util.ErrorLogger;
 import javafx.scene.control.Labeled;
-import jsonant.value.JSONArray;
-import jsonant.value.JSONObject;
+import javafx.scene.control.Tooltip;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Paint;
+import javafx.scene.paint.Stop;
 
 public class ZoobotanicalUtil {
 
 	public static List<String> terrains = List.of("Beliebiges Gelände", "Eis", "Wüste und Wüstenrand", "Gebirge", "Hochland", "Steppe", "Grasland, Wiesen",
 			"Fluss- und Seeufer, Teiche", "Küste, Strand", "Flussauen", "Sumpf und Moor", "Regenwald", "Wald", "Waldrand", "Höhlen");
 
-	public static int getDifficulty(final JSONObject plant, final String terrain) {
-		final String prevalence = plant.getObj("Verbreitung").getString(terrain);
+	public static final int ANY_TERRAIN = 0;
+	public static final int OTHER_TERRAIN = terrains.size();
+
+	// Keyed by the type names of a plant in data order, so list cells never build or parse a style while scrolling
+	private static final Map<List<String>, Paint> typeFills = new HashMap<>();
+	private static final Map<List<String>, Tooltip> typeTooltips = new HashMap<>();
+	private static final Map<CatalogEntry, Tooltip> notesTooltips = new WeakHashMap<>();
+
+	/**
+	 * Returns the colors of the types in the given order, as solid bands of equal width if there are several, unknown types are black
+	 */
+	private static Paint createTypeFill(final List<String> typeNames) {
+		if (typeNames.isEmpty()) return Color.BLACK;
+		if (typeNames.size() == 1) return getTypeColor(typeNames.getFirst());
+		// Same as the CSS gradient with every color listed twice
+		final Stop[] stops = new Stop[2 * typeNames.size()];
+		for (int i = 0; i < stops.length; i += 2) {
+			final Color color = getTypeColor(typeNames.get(i / 2));
+			stops[i] = new Stop((double) i / (stops.length - 1), color);
+			stops[i + 1] = new Stop((double) (i + 1) / (stops.length - 1), color);
+		}
+		return new LinearGradient(0, 0, 1, 0, true, CycleMethod.NO_CYCLE, stops);
+	}
+
+	public static int getDifficulty(final Plant plant, final int terrain) {
+		final Prevalence prevalence = plant.getPrevalence(terrain);
 		if (prevalence == null) {
-			if ("Sonstiges Gelände".equals(terrain))
+			if (terrain == OTHER_TERRAIN)
 				return 0;
 			else
 				throw new IllegalArgumentException("Unbekannte Verbreitung: " + prevalence);
 		}
-		return switch (prevalence) {
-			case "sehr häufig" -> 1;
-			case "häufig" -> 2;
-			case "gelegentlich" -> 4;
-			case "selten" -> 8;
-			case "sehr selten" -> 16;
-			default -> Integer.MAX_VALUE;
-		};
+		return prevalence.difficulty;
 	}
 
-	public static boolean isAvailable(final JSONObject plant, final String harvestTime, final String terrain, final Map<String, Boolean> locationInRegion) {
-		if (harvestTime != null) {
-			final JSONArray harvest = plant.getArrOrDefault("Ernte", null);
-			if (harvest != null && !harvest.contains(harvestTime)) return false;
-		}
+	/**
+	 * Returns the number of plants found
+	 *
+	 * @param harvested
+	 *            Whether the plant was searched for specifically or found while searching for any plant
+	 * @param tap
+	 *            The TaP* of the search, negative if the search failed
+	 * @param difficulty
+	 *            The search difficulty of the plant
+	 */
+	public static int getHarvestCount(final boolean harvested, final int tap, final int difficulty) {
+		if (tap < 0) return 0;
+		if (harvested) return 1 + tap / ((difficulty + 1) / 2);
+		return difficulty > (tap + 1) / 2 ? 0 : tap / difficulty;
+	}
 
-		if (!"Beliebiges Gelände".equals(terrain) && !"Sonstiges Gelände".equals(terrain)) {
-			final JSONObject prevalence = plant.getObjOrDefault("Verbreitung", null);
-			if (prevalence == null || !prevalence.containsKey(terrain)) return false;
-		}
+	/**
+	 * Returns a tooltip with the notes of the entry, shared by all controls showing it. Must be called on the application thread.
+	 *
+	 * @return The tooltip or null if the entry has no notes
+	 */
+	public static Tooltip getNotesTooltip(final CatalogEntry entry) {
+		final String notes = entry.getNotes();
+		if (notes == null) return null;
+		return notesTooltips.computeIfAbsent(entry, _ -> new Tooltip(notes));
+	}
 
-		final Collection<String> plantRegions = plant.getArr("Gebiet").getStrings();
-		for (final String region : plantRegions) {
-			if (!locationInRegion.containsKey(region)) {
-				ErrorLogger.log("Unbekanntes Gebiet \"" + region + "\"");
-			} else if (locationInRegion.get(region)) return true;
-		}
+	public static int getSearchDifficulty(final Plant plant, final int terrain) {
+		final int identification = plant.getIdentification();
+		return identification == Plant.UNKNOWN_IDENTIFICATION ? Integer.MAX_VALUE : identification + getDifficulty(plant, terrain);
+	}
 
-		return false;
+	private static Color getTypeColor(final String typeName) {
+		final PlantType type = PlantType.of(typeName);
+		return type == null ? Color.BLACK : Color.web(type.color);
 	}
 
-	private static String plantTypeToCSSColor(final String plantType) {
-		return switch (plantType) {
-			case "Gefährliche Pflanze" -> "red";
-			case "Giftpflanze" -> "darkviolet";
-			case "Heilpflanze" -> "green";
-			case "Nutzpflanze" -> "sienna";
-			case "Übernatürliche Pflanze" -> "goldenrod";
-			default -> "black";
-		};
+	/**
+	 * Returns a tooltip with the types of the plant, shared by all controls showing plants of the same types. Must be called on the application
+	 * thread.
+	 */
+	public static Tooltip getTypeTooltip(final Plant plant) {
+		return typeTooltips.computeIfAbsent(plant.getTypeNames(), typeNames -> new Tooltip(String.join(", ", typeNames)));
 	}
 
-	public static JSONArray setPlantNameType(final Labeled control, final JSONObject plants, final JSONObject plant) {
-		control.setText(plants.keyOf(plant));
+	public static boolean isAvailable(final CatalogEntry entry, final int month, final int terrain, final BitSet location) {
+		if (month >= 0 && !entry.isInMonth(month)) return false;
+
+		if (terrain != ANY_TERRAIN && terrain != OTHER_TERRAIN && entry.getPrevalence(terrain) == null) return false;
 
-		final JSONArray plantType = plant.getArr("Typ");
-		final String typeColor = plantType.size() == 1 ? plantTypeToCSSColor(plantType.getString(0))
-				: "linear-gradient(to right," + plantType.getStrings().stream()
-						.mapMulti((final String t, final Consumer<String> c) -> {
-							c.accept(t);
-							c.accept(t);
-						})
-						.map(t -> plantTypeToCSSColor(t)).collect(Collectors.joining(",")) + ")";
-		control.setStyle("-fx-text-fill: " + typeColor);
+		return location == null ? entry.hasRegions() : entry.isInRegions(location);
+	}
 
-		return plantType;
+	/**
+	 * Shows the name of the plant in the colors of its types. Must be called on the application thread.
+	 */
+	public static void setPlantNameType(final Labeled control, final Plant plant) {
+		control.setText(plant.getName());
+		control.setTextFill(typeFills.computeIfAbsent(plant.getTypeNames(), ZoobotanicalUtil::createTypeFill));
 	}
 
 	private ZoobotanicalUtil() {}
@@ -15,32 +15,34 @@
  */
 package zoobotanical.harvest;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
-import dsa41basis.util.DSAUtil;
-import dsa41basis.util.DSAUtil.Units;
 import dsatool.gui.GUIUtil;
 import dsatool.ui.ReactiveComboBox;
 import dsatool.ui.ReactiveSpinner;
 import dsatool.util.ErrorLogger;
-import dsatool.util.Util;
-import javafx.beans.binding.Bindings;
 import javafx.beans.value.ChangeListener;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
-import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
-import javafx.scene.control.Tooltip;
-import javafx.scene.layout.HBox;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import javafx.stage.Window;
-import jsonant.value.JSONObject;
+import zoobotanical.CatalogIndex;
+import zoobotanical.HarvestThresholds;
+import zoobotanical.Plant;
+import zoobotanical.PlantCatalog;
+import zoobotanical.ZoobotanicalMetrics;
+import zoobotanical.ZoobotanicalMetrics.Operation;
+import zoobotanical.ZoobotanicalMetrics.Timer;
 import zoobotanical.ZoobotanicalUtil;
 
 public class HarvestDialog {
@@ -61,205 +63,201 @@ public class HarvestDialog {
 	@FXML
 	private CheckBox roll;
 	@FXML
+	private TextField seedInput;
+	@FXML
 	private VBox harvestedPlantsBox;
 	@FXML
 	private VBox dangerousPlantsBox;
+	@FXML
+	private Label nextPlantLabel;
+	@FXML
+	private Button simulateButton;
 
-	private final JSONObject plants;
+	private final PlantCatalog plants;
 
-	private final String harvestTime;
-	private final Map<String, Boolean> locationInRegion;
+	private final int harvestTime;
+	private long seed = ThreadLocalRandom.current().nextInt(1000000);
+	private final BitSet location;
 
-	private final Map<JSONObject, HBox> plantBoxes = new HashMap<>();
+	private final Plant harvestedPlant;
+	private Map<Plant, HarvestRow> harvestRows = new LinkedHashMap<>();
+	private Map<Plant, HarvestRow> dangerousRows = new LinkedHashMap<>();
+	private int obtainedRows = 0;
 
-	public HarvestDialog(final Window window, final JSONObject plants, final JSONObject harvestedPlant, String selectedTerrain, final String harvestTime,
-			final Map<String, Boolean> locationInRegion) {
+	public HarvestDialog(final Window window, final PlantCatalog plants, final Plant harvestedPlant, String selectedTerrain, final int harvestTime,
+			final BitSet location) {
+		final Timer timer = ZoobotanicalMetrics.start(Operation.HARVEST_DIALOG);
 
 		this.plants = plants;
+		this.harvestedPlant = harvestedPlant;
 		this.harvestTime = harvestTime;
-		this.locationInRegion = locationInRegion;
+		this.location = location;
 
-		final FXMLLoader fxmlLoader = new FXMLLoader();
+		final Stage stage;
+		try {
+			final FXMLLoader fxmlLoader = new FXMLLoader();
 
-		fxmlLoader.setController(this);
+			fxmlLoader.setController(this);
 
-		try {
-			fxmlLoader.load(getClass().getResource("HarvestDialog.fxml").openStream());
-		} catch (final Exception e) {
-			ErrorLogger.logError(e);
-		}
+			final Timer fxmlTimer = ZoobotanicalMetrics.start(Operation.FXML);
+			try {
+				fxmlLoader.load(getClass().getResource("HarvestDialog.fxml").openStream());
+			} catch (final Exception e) {
+				ErrorLogger.logError(e);
+			}
+			fxmlTimer.stop();
+
+			stage = GUIUtil.setupStage(root, 660, 500, "Kräuter Suchen" + (harvestedPlant == null ? "" : ": " + harvestedPlant.getName()),
+					window, true);
+
+			okButton.setOnAction(_ -> stage.close());
+			stage.setOnHidden(_ -> {
+				harvestedPlantsBox.getChildren().clear();
+				dangerousPlantsBox.getChildren().clear();
+				harvestRows.values().forEach(HarvestRow::release);
+				dangerousRows.values().forEach(HarvestRow::release);
+				harvestRows.clear();
+				dangerousRows.clear();
+			});
+			okButton.setDefaultButton(true);
+
+			if (harvestedPlant != null) {
+				final List<String> prevalence = plants.getTerrains(harvestedPlant);
+				if (prevalence.isEmpty()) {
+					terrainList.getItems().setAll("Sonstiges Gelände");
+				} else {
+					terrainList.getItems().setAll(prevalence);
+				}
 
-		final Stage stage = GUIUtil.setupStage(root, 660, 500, "Kräuter Suchen" + (harvestedPlant == null ? "" : ": " + plants.keyOf(harvestedPlant)), window,
-				true);
+				selectedTerrain = selectedTerrain == null ? terrainList.getItems().getFirst() : selectedTerrain;
 
-		okButton.setOnAction(_ -> stage.close());
-		okButton.setDefaultButton(true);
+				terrainList.getSelectionModel().selectedItemProperty().addListener(
+						(_, _, newV) -> difficultyInput.getValueFactory()
+								.setValue(ZoobotanicalUtil.getSearchDifficulty(harvestedPlant, plants.getTerrainOrdinal(newV))));
+				terrainList.getSelectionModel().select(selectedTerrain);
 
-		if (harvestedPlant != null) {
-			final Set<String> prevalence = harvestedPlant.getObj("Verbreitung").keySet();
-			if (prevalence.isEmpty()) {
-				terrainList.getItems().setAll("Sonstiges Gelände");
+				simulateButton.setVisible(false);
+				simulateButton.setManaged(false);
 			} else {
-				terrainList.getItems().setAll(prevalence);
+				difficultyLabel.setVisible(false);
+				difficultyLabel.setManaged(false);
+				difficultyInput.setVisible(false);
+				difficultyInput.setManaged(false);
+
+				simulateButton.setOnAction(
+						_ -> new HarvestSimulationDialog(stage, plants, terrainList.getSelectionModel().getSelectedItem(), harvestTime, location));
+
+				terrainList.getItems().setAll(ZoobotanicalUtil.terrains);
+				terrainList.getSelectionModel().select(selectedTerrain);
 			}
 
-			selectedTerrain = selectedTerrain == null ? terrainList.getItems().getFirst() : selectedTerrain;
+			update();
 
-			terrainList.getSelectionModel().selectedItemProperty().addListener(
-					(_, _, newV) -> difficultyInput.getValueFactory()
-							.setValue(harvestedPlant.getIntOrDefault("Bestimmung", null) + ZoobotanicalUtil.getDifficulty(harvestedPlant, newV)));
-			terrainList.getSelectionModel().select(selectedTerrain);
+			final ChangeListener<? super Object> updateListener = (_, _, _) -> update();
 
-			addPlant(harvestedPlant, true, false, selectedTerrain);
-		} else {
-			difficultyLabel.setVisible(false);
-			difficultyLabel.setManaged(false);
-			difficultyInput.setVisible(false);
-			difficultyInput.setManaged(false);
-
-			terrainList.getItems().setAll(ZoobotanicalUtil.terrains);
-			terrainList.getSelectionModel().select(selectedTerrain);
-
-			for (final String plantName : plants.keySet()) {
-				final JSONObject plant = plants.getObj(plantName);
-				if (plant.containsKey("Grundmenge")) {
-					addPlant(plant, false, false, selectedTerrain);
+			seedInput.setText(Long.toString(seed));
+			seedInput.textProperty().addListener((_, _, newV) -> {
+				try {
+					seed = Long.parseLong(newV.trim());
+					update();
+				} catch (final NumberFormatException e) {
+					// Keep the previous seed until the input is a number again
 				}
-			}
-		}
+			});
 
-		for (final String plantName : plants.keySet()) {
-			final JSONObject plant = plants.getObj(plantName);
-			if (plant != harvestedPlant && plant.getArr("Typ").contains("Gefährliche Pflanze")) {
-				addPlant(plant, false, true, selectedTerrain);
-			}
+			difficultyInput.valueProperty().addListener(updateListener);
+			terrainList.getSelectionModel().selectedItemProperty().addListener(updateListener);
+			tapInput.valueProperty().addListener(updateListener);
+		} finally {
+			timer.stop();
 		}
+		stage.show();
+	}
 
-		final ChangeListener<? super Object> updateListener = (_, _, _) -> {
-			for (final JSONObject plant : plantBoxes.keySet()) {
-				updateInterpretation(plant, plant == harvestedPlant, terrainList.getSelectionModel().getSelectedItem());
-			}
-		};
-
-		difficultyInput.valueProperty().addListener(updateListener);
-		terrainList.getSelectionModel().selectedItemProperty().addListener(updateListener);
-		tapInput.valueProperty().addListener(updateListener);
+	private long[] getAvailable(final String selectedTerrain) {
+		return plants.getIndex().getAvailable(harvestTime, plants.getTerrainOrdinal(selectedTerrain), location);
+	}
 
-		stage.show();
+	private List<Plant> getPlants(final long[] ordinals) {
+		final List<Plant> result = new ArrayList<>();
+		for (int ordinal = CatalogIndex.nextSetBit(ordinals, 0); ordinal >= 0; ordinal = CatalogIndex.nextSetBit(ordinals, ordinal + 1)) {
+			final Plant plant = plants.getPlants().get(ordinal);
+			if (plant != harvestedPlant) {
+				result.add(plant);
+			}
+		}
+		return result;
 	}
 
-	private void addPlant(final JSONObject plant, final boolean harvested, final boolean dangerous, final String selectedTerrain) {
+	/**
+	 * Shows the rows of all plants visible with the current inputs, rows of hidden plants are returned to the pool
+	 */
+	private void update() {
+		final Timer timer = ZoobotanicalMetrics.start(Operation.HARVEST_UPDATE);
 		try {
-			final FXMLLoader plantLoader = new FXMLLoader();
-			final HBox plantBox = plantLoader.load(getClass().getResource("Plant.fxml").openStream());
+			obtainedRows = 0;
 
-			final ObservableList<Node> items = plantBox.getChildren();
+			final String terrain = terrainList.getSelectionModel().getSelectedItem();
+			final int terrainOrdinal = plants.getTerrainOrdinal(terrain);
+			final int tap = tapInput.getValue();
+			final long[] available = getAvailable(terrain);
+			final HarvestThresholds thresholds = plants.getHarvestThresholds();
 
-			final Label nameLabel = (Label) items.get(0);
-			ZoobotanicalUtil.setPlantNameType(nameLabel, plants, plant);
-			Util.addReference(nameLabel, plant, 10, nameLabel.widthProperty());
+			final List<Plant> harvested;
+			if (harvestedPlant != null) {
+				harvested = List.of(harvestedPlant);
+			} else {
+				final long[] harvestable = thresholds.getHarvestable(terrainOrdinal, tap);
+				for (int i = 0; i < harvestable.length; ++i) {
+					harvestable[i] &= available[i];
+				}
+				harvested = getPlants(harvestable);
 
-			final Label infoLabel = (Label) items.get(1);
-			final String info = plant.getString("Anmerkungen");
-			infoLabel.setTooltip(new Tooltip(info));
-			infoLabel.setVisible(info != null);
+				final int nextTap = thresholds.getNextHarvestable(terrainOrdinal, tap, available);
+				nextPlantLabel.setText(nextTap == Integer.MAX_VALUE ? null : "Nächste Pflanze ab TaP* " + nextTap);
+			}
+			harvestRows = updateRows(harvested, false, terrainOrdinal, tap, harvestRows);
+			harvestedPlantsBox.getChildren().setAll(harvestRows.values());
 
-			if (dangerous) {
-				dangerousPlantsBox.getChildren().add(plantBox);
-			} else {
-				harvestedPlantsBox.getChildren().add(plantBox);
+			final long[] unidentified = thresholds.getUnidentified(tap);
+			for (int i = 0; i < unidentified.length; ++i) {
+				unidentified[i] &= available[i];
 			}
-			plantBoxes.put(plant, plantBox);
-			updateInterpretation(plant, harvested, selectedTerrain);
-		} catch (final Exception e) {
-			ErrorLogger.logError(e);
+			dangerousRows = updateRows(getPlants(unidentified), true, terrainOrdinal, tap, dangerousRows);
+			dangerousPlantsBox.getChildren().setAll(dangerousRows.values());
+
+		} finally {
+			timer.stop(harvestRows.size() + dangerousRows.size(), obtainedRows);
 		}
 	}
 
-	private void updateInterpretation(final JSONObject plant, final boolean harvested, final String selectedTerrain) {
-		final HBox plantBox = plantBoxes.get(plant);
-
-		if (!harvested && !ZoobotanicalUtil.isAvailable(plant, harvestTime, selectedTerrain, locationInRegion)) {
-			plantBox.setVisible(false);
-			plantBox.setManaged(false);
-			return;
+	private Map<Plant, HarvestRow> updateRows(final List<Plant> visible, final boolean dangerous, final int terrain, final int tap,
+			final Map<Plant, HarvestRow> previous) {
+		final Map<Plant, HarvestRow> shown = new LinkedHashMap<>();
+		for (final Plant plant : visible) {
+			HarvestRow row = previous.remove(plant);
+			if (row == null) {
+				row = HarvestRow.obtain(plant, roll.selectedProperty());
+				++obtainedRows;
+			}
+			updateInterpretation(row, dangerous, terrain, tap);
+			shown.put(plant, row);
 		}
+		previous.values().forEach(HarvestRow::release);
+		return shown;
+	}
 
-		final ObservableList<Node> items = plantBox.getChildren();
-
-		final boolean isDangerous = dangerousPlantsBox.getChildren().contains(plantBox);
-
-		final int tap = tapInput.getValue();
-
-		final Label amountLabel = (Label) items.get(2);
-		final Label durabilityLabel = (Label) items.get(3);
+	private void updateInterpretation(final HarvestRow row, final boolean isDangerous, final int terrain, final int tap) {
+		final Plant plant = row.getPlant();
 
 		if (isDangerous) {
-			final int difficulty = plant.getIntOrDefault("Bestimmung", Integer.MAX_VALUE);
-
-			amountLabel.setText(plant.getObj("Verbreitung").getString(selectedTerrain));
-			durabilityLabel.setText(Integer.toString(difficulty));
-
-			if (difficulty > tap) {
-				plantBox.setVisible(true);
-				plantBox.setManaged(true);
-			} else {
-				plantBox.setVisible(false);
-				plantBox.setManaged(false);
-			}
+			final int identification = plant.getIdentification();
+			row.setDangerous(plant.getPrevalence(terrain), identification == Plant.UNKNOWN_IDENTIFICATION ? Integer.MAX_VALUE : identification);
 		} else {
+			final boolean harvested = plant == harvestedPlant;
 			final int difficulty = harvested ? difficultyInput.getValue()
-					: plant.getIntOrDefault("Bestimmung", Integer.MAX_VALUE) + ZoobotanicalUtil.getDifficulty(plant, selectedTerrain);
-
-			final int count = tap < 0 ? 0 : harvested ? 1 + tap / ((difficulty + 1) / 2) : difficulty > (tap + 1) / 2 ? 0 : tap / difficulty;
-
-			if (count < 1 && !harvested) {
-				plantBox.setVisible(false);
-				plantBox.setManaged(false);
-				return;
-			} else {
-				plantBox.setVisible(true);
-				plantBox.setManaged(true);
-			}
-
-			final JSONObject amount = plant.getObjOrDefault("Grundmenge", null);
-			final int amountRoll = amount == null ? 0 : DSAUtil.randomRoll(amount, count);
-			if (amount != null) {
-				amountLabel.textProperty().bind(Bindings.createStringBinding(() -> {
-					StringBuilder result;
-					if (roll.isSelected()) {
-						result = new StringBuilder();
-						result.append(amountRoll);
-					} else {
-						result = DSAUtil.getRollString(amount, count, Units.NONE);
-					}
-					result.append(' ');
-					result.append(amount.getString("Art"));
-					return result.toString();
-				}, roll.selectedProperty()));
-			}
-
-			final JSONObject durability = plant.getObjOrDefault("Haltbarkeit", null);
-			if (durability != null) {
-				final int durabilityRoll = DSAUtil.randomRoll(durability);
-				durabilityLabel.textProperty().bind(Bindings.createStringBinding(() -> {
-					if (roll.isSelected()) {
-						final StringBuilder result = new StringBuilder();
-						result.append(durabilityRoll);
-						DSAUtil.appendUnit(result, durability, durabilityRoll == 1, Units.TIME);
-						return result.toString();
-					} else
-						return DSAUtil.getRollString(durability, Units.TIME).toString();
-				}, roll.selectedProperty()));
-			}
-
-			final Label valueLabel = (Label) items.get(4);
-			final Double value = plant.getDouble("Preis");
-			if (value != null) {
-				valueLabel.textProperty().bind(Bindings.createStringBinding(() -> {
-					return (roll.isSelected() ? "" : "je ") + DSAUtil.getMoneyString(roll.isSelected() ? value * amountRoll : value);
-				}, roll.selectedProperty()));
-			}
+					: ZoobotanicalUtil.getSearchDifficulty(plant, terrain);
+			row.setHarvest(ZoobotanicalUtil.getHarvestCount(harvested, tap, difficulty), plants.getDice(), seed);
 		}
 	}
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical.harvest;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import dsa41basis.util.DSAUtil;
+import dsatool.gui.GUIUtil;
+import dsatool.util.ErrorLogger;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import zoobotanical.HarvestPlanner;
+import zoobotanical.HarvestPlanner.Option;
+import zoobotanical.Plant;
+import zoobotanical.PlantCatalog;
+
+/**
+ * Shows the best terrains to search for a plant in. The dialog is not modal and follows the selected plant, month and location.
+ */
+public final class HarvestPlanDialog {
+
+	private static final int MAX_OPTIONS = 5;
+
+	@FXML
+	private VBox root;
+	@FXML
+	private Label plantLabel;
+	@FXML
+	private TableView<Option> options;
+	@FXML
+	private TableColumn<Option, String> terrainColumn;
+	@FXML
+	private TableColumn<Option, Integer> difficultyColumn;
+	@FXML
+	private TableColumn<Option, String> monthsColumn;
+	@FXML
+	private TableColumn<Option, String> regionsColumn;
+	@FXML
+	private Button okButton;
+
+	private final PlantCatalog plants;
+	private final HarvestPlanner planner;
+
+	private final Stage stage;
+
+	public HarvestPlanDialog(final Window window, final PlantCatalog plants) {
+		this.plants = plants;
+		planner = plants.getHarvestPlanner();
+
+		final FXMLLoader fxmlLoader = new FXMLLoader();
+
+		fxmlLoader.setController(this);
+
+		try {
+			fxmlLoader.load(getClass().getResource("HarvestPlanDialog.fxml").openStream());
+		} catch (final Exception e) {
+			ErrorLogger.logError(e);
+		}
+
+		stage = GUIUtil.setupStage(root, 700, 250, "Ernteplanung", window, false);
+
+		okButton.setOnAction(_ -> stage.close());
+
+		terrainColumn.setCellValueFactory(d -> new SimpleStringProperty(plants.getTerrain(d.getValue().terrain())));
+		difficultyColumn.setCellValueFactory(d -> new SimpleIntegerProperty(d.getValue().difficulty()).asObject());
+		monthsColumn.setCellValueFactory(d -> new SimpleStringProperty(getMonthNames(d.getValue().months())));
+		regionsColumn.setCellValueFactory(d -> new SimpleStringProperty(getRegionNames(d.getValue().regions())));
+
+		stage.show();
+	}
+
+	private String getMonthNames(final int months) {
+		final List<String> names = new ArrayList<>();
+		for (int i = 0; i < DSAUtil.months.length; ++i) {
+			if ((months & 1 << i) != 0) {
+				names.add(DSAUtil.months[i]);
+			}
+		}
+		return names.size() == DSAUtil.months.length ? "Ganzjährig" : String.join(", ", names);
+	}
+
+	private String getRegionNames(final BitSet regions) {
+		final List<String> names = new ArrayList<>(regions.cardinality());
+		for (int i = regions.nextSetBit(0); i >= 0; i = regions.nextSetBit(i + 1)) {
+			names.add(plants.getRegion(i));
+		}
+		return String.join(", ", names);
+	}
+
+	public boolean isShowing() {
+		return stage.isShowing();
+	}
+
+	public void toFront() {
+		stage.toFront();
+	}
+
+	/**
+	 * Shows the options for the given plant
+	 *
+	 * @param plant
+	 *            The plant or null if none is selected
+	 * @param month
+	 *            The ordinal of the selected month or -1
+	 * @param location
+	 *            The regions at the selected location or null
+	 */
+	public void update(final Plant plant, final int month, final BitSet location) {
+		if (plant == null) {
+			plantLabel.setText("Keine Pflanze ausgewählt");
+			options.getItems().clear();
+		} else {
+			plantLabel.setText(plant.getName());
+			options.getItems().setAll(planner.getBestOptions(plant, month, location, MAX_OPTIONS));
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical.harvest;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import dsa41basis.util.DSAUtil;
+import dsa41basis.util.DSAUtil.Units;
+import dsatool.util.Util;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.value.ObservableBooleanValue;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
+import javafx.scene.text.Font;
+import jsonant.value.JSONObject;
+import zoobotanical.DiceKernel;
+import zoobotanical.Plant;
+import zoobotanical.Prevalence;
+import zoobotanical.ZoobotanicalUtil;
+
+/**
+ * A row of the harvest dialog, built in code and recycled between dialogs instead of being loaded from FXML for every plant.
+ * The dice of a row are rolled from the seed of the dialog and the number of plants found, so the results stay the same while only unrelated inputs change.
+ */
+public class HarvestRow extends HBox {
+
+	private static final int MAX_POOLED = 256;
+	private static final Deque<HarvestRow> pool = new ArrayDeque<>();
+
+	/**
+	 * Returns a row showing the given plant, reusing a released row if possible. Must be called on the application thread.
+	 */
+	public static HarvestRow obtain(final Plant plant, final ObservableBooleanValue showRolls) {
+		HarvestRow row = null;
+		// Prefer a row that showed the same plant before, so its name and reference can be kept
+		for (final HarvestRow pooled : pool) {
+			if (pooled.named == plant) {
+				row = pooled;
+				break;
+			}
+		}
+		if (row != null) {
+			pool.removeFirstOccurrence(row);
+		} else {
+			row = pool.isEmpty() ? new HarvestRow() : pool.pop();
+		}
+		row.setPlant(plant);
+		row.showRolls.bind(showRolls);
+		return row;
+	}
+
+	/**
+	 * Returns a row to the pool once it is no longer shown, detaching it so it doesn't keep its dialog alive. Must be called on the application
+	 * thread.
+	 */
+	public static void release(final HarvestRow row) {
+		if (row.getParent() instanceof final Pane parent) {
+			parent.getChildren().remove(row);
+		}
+		row.clear();
+		if (pool.size() < MAX_POOLED) {
+			pool.push(row);
+		}
+	}
+
+	private static Label createLabel(final double width) {
+		final Label label = new Label();
+		label.setAlignment(Pos.BOTTOM_RIGHT);
+		label.setPrefWidth(width);
+		return label;
+	}
+
+	private Plant plant;
+	private Plant named;
+	private final BooleanProperty showRolls = new SimpleBooleanProperty(false);
+	private int count = -1;
+	private long seed;
+	private int amountRoll;
+	private int durabilityRoll;
+
+	private final Label info = new Label("\uE88E");
+	private final Label amount = createLabel(180);
+	private final Label durability = createLabel(120);
+	private final Label value = createLabel(65);
+
+	private HarvestRow() {
+		super(2);
+		setAlignment(Pos.CENTER);
+
+		info.setMinHeight(22);
+		info.setMaxHeight(22);
+		info.setPadding(new Insets(-2, 0, 0, 0));
+		info.setFont(new Font("Material Symbols Outlined", 20));
+
+		getChildren().addAll(new Label(), info, amount, durability, value);
+
+		showRolls.addListener((_, _, _) -> {
+			if (count >= 0) {
+				showHarvest();
+			}
+		});
+	}
+
+	private void clear() {
+		showRolls.unbind();
+		plant = null;
+		count = -1;
+		info.setTooltip(null);
+		amount.setText(null);
+		durability.setText(null);
+		value.setText(null);
+	}
+
+	public Plant getPlant() {
+		return plant;
+	}
+
+	/**
+	 * Shows the prevalence and identification of a dangerous plant
+	 */
+	public void setDangerous(final Prevalence prevalence, final int identification) {
+		amount.setText(prevalence == null ? null : prevalence.name);
+		durability.setText(Integer.toString(identification));
+	}
+
+	/**
+	 * Shows the yield of the given number of plants. The dice are only rolled again if the number or the seed changes.
+	 */
+	public void setHarvest(final int count, final DiceKernel dice, final long seed) {
+		if (count == this.count && seed == this.seed) return;
+		this.count = count;
+		this.seed = seed;
+
+		amountRoll = dice.rollAmount(seed, plant.getOrdinal(), count);
+		durabilityRoll = dice.rollDurability(seed, plant.getOrdinal());
+
+		showHarvest();
+	}
+
+	private void showHarvest() {
+		final boolean rolled = showRolls.get();
+
+		final JSONObject amountDice = plant.getAmount();
+		if (amountDice != null) {
+			final StringBuilder result = rolled ? new StringBuilder().append(amountRoll) : DSAUtil.getRollString(amountDice, count, Units.NONE);
+			result.append(' ');
+			result.append(plant.getAmountType());
+			amount.setText(result.toString());
+		}
+
+		final JSONObject durabilityDice = plant.getDurability();
+		if (durabilityDice != null) {
+			if (rolled) {
+				final StringBuilder result = new StringBuilder();
+				result.append(durabilityRoll);
+				DSAUtil.appendUnit(result, durabilityDice, durabilityRoll == 1, Units.TIME);
+				durability.setText(result.toString());
+			} else {
+				durability.setText(DSAUtil.getRollString(durabilityDice, Units.TIME).toString());
+			}
+		}
+
+		final double price = plant.getPrice();
+		if (!Double.isNaN(price)) {
+			value.setText((rolled ? "" : "je ") + DSAUtil.getMoneyString(rolled ? price * amountRoll : price));
+		}
+	}
+
+	private void setPlant(final Plant plant) {
+		this.plant = plant;
+
+		// The reference is attached to the label itself, so every other plant gets a new one
+		if (plant != named) {
+			final Label name = new Label();
+			name.setAlignment(Pos.BOTTOM_LEFT);
+			name.setMaxWidth(Double.MAX_VALUE);
+			HBox.setHgrow(name, Priority.ALWAYS);
+			ZoobotanicalUtil.setPlantNameType(name, plant);
+			Util.addReference(name, plant.getData(), 10, name.widthProperty());
+			getChildren().set(0, name);
+			named = plant;
+		}
+
+		final Tooltip notes = ZoobotanicalUtil.getNotesTooltip(plant);
+		info.setTooltip(notes);
+		info.setVisible(notes != null);
+	}
+}
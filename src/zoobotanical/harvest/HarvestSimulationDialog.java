@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical.harvest;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import dsa41basis.util.DSAUtil;
+import dsatool.gui.GUIUtil;
+import dsatool.ui.ReactiveComboBox;
+import dsatool.ui.ReactiveSpinner;
+import dsatool.util.ErrorLogger;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.SpinnerValueFactory.IntegerSpinnerValueFactory;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import zoobotanical.PlantCatalog;
+import zoobotanical.ZoobotanicalUtil;
+import zoobotanical.harvest.HarvestSimulator.Result;
+
+/**
+ * Estimates the yield of an expedition searching for any plant with {@link HarvestSimulator}
+ */
+public final class HarvestSimulationDialog {
+
+	private static class FormattedCell<S> extends TableCell<S, Number> {
+		private final String format;
+
+		private FormattedCell(final String format) {
+			this.format = format;
+		}
+
+		@Override
+		protected void updateItem(final Number item, final boolean empty) {
+			super.updateItem(item, empty);
+			setText(empty || item == null ? null : String.format(format, item.doubleValue()));
+		}
+	}
+
+	@FXML
+	private VBox root;
+	@FXML
+	private ReactiveComboBox<String> terrainList;
+	@FXML
+	private ReactiveSpinner<Integer> minTapInput;
+	@FXML
+	private ReactiveSpinner<Integer> maxTapInput;
+	@FXML
+	private ReactiveSpinner<Integer> trialsInput;
+	@FXML
+	private TextField seedInput;
+	@FXML
+	private Button simulateButton;
+	@FXML
+	private TableView<Result> results;
+	@FXML
+	private TableColumn<Result, String> plantColumn;
+	@FXML
+	private TableColumn<Result, Number> countColumn;
+	@FXML
+	private TableColumn<Result, String> amountColumn;
+	@FXML
+	private TableColumn<Result, Number> valueColumn;
+	@FXML
+	private Label totalLabel;
+	@FXML
+	private Button okButton;
+
+	private final PlantCatalog plants;
+	private final int harvestTime;
+	private final BitSet location;
+
+	/**
+	 * @param selectedTerrain
+	 *            The terrain selected initially or null
+	 * @param harvestTime
+	 *            The ordinal of the harvest month or -1 for any month
+	 * @param location
+	 *            The regions at the location or null for any location
+	 */
+	public HarvestSimulationDialog(final Window window, final PlantCatalog plants, final String selectedTerrain, final int harvestTime,
+			final BitSet location) {
+		this.plants = plants;
+		this.harvestTime = harvestTime;
+		this.location = location;
+
+		final FXMLLoader fxmlLoader = new FXMLLoader();
+
+		fxmlLoader.setController(this);
+
+		try {
+			fxmlLoader.load(getClass().getResource("HarvestSimulationDialog.fxml").openStream());
+		} catch (final Exception e) {
+			ErrorLogger.logError(e);
+		}
+
+		final Stage stage = GUIUtil.setupStage(root, 760, 450, "Ertrag Schätzen", window, false);
+
+		okButton.setOnAction(_ -> stage.close());
+
+		// The simulation needs a specific terrain, as the difficulty of each plant depends on it
+		terrainList.getItems().setAll(ZoobotanicalUtil.terrains.subList(ZoobotanicalUtil.ANY_TERRAIN + 1, ZoobotanicalUtil.terrains.size()));
+		terrainList.getSelectionModel().select(terrainList.getItems().contains(selectedTerrain) ? selectedTerrain : terrainList.getItems().getFirst());
+
+		if (trialsInput.getValueFactory() instanceof final IntegerSpinnerValueFactory trials) {
+			trials.setAmountToStepBy(10000);
+		}
+		seedInput.setText(Long.toString(ThreadLocalRandom.current().nextInt(1000000)));
+
+		plantColumn.setCellValueFactory(d -> new SimpleStringProperty(d.getValue().plant().getName()));
+		countColumn.setCellValueFactory(d -> new SimpleDoubleProperty(d.getValue().meanCount()));
+		countColumn.setCellFactory(_ -> new FormattedCell<>("%.2f"));
+		amountColumn.setCellValueFactory(d -> {
+			final Result result = d.getValue();
+			final String type = result.plant().getAmountType();
+			final String amount = String.format("%.2f ± %.2f", result.meanAmount(), Math.sqrt(result.amountVariance()));
+			return new SimpleStringProperty(type == null ? amount : amount + " " + type);
+		});
+		valueColumn.setCellValueFactory(d -> new SimpleDoubleProperty(d.getValue().meanValue()));
+		valueColumn.setCellFactory(_ -> new TableCell<>() {
+			@Override
+			protected void updateItem(final Number item, final boolean empty) {
+				super.updateItem(item, empty);
+				setText(empty || item == null || Double.isNaN(item.doubleValue()) ? null : DSAUtil.getMoneyString(item.doubleValue()));
+			}
+		});
+
+		stage.show();
+	}
+
+	@FXML
+	private void simulate() {
+		final long seed;
+		try {
+			seed = Long.parseLong(seedInput.getText().trim());
+		} catch (final NumberFormatException e) {
+			totalLabel.setText("Ungültiger Startwert");
+			return;
+		}
+		final int terrain = plants.getTerrainOrdinal(terrainList.getSelectionModel().getSelectedItem());
+		final int minTap = Math.min(minTapInput.getValue(), maxTapInput.getValue());
+		final int maxTap = Math.max(minTapInput.getValue(), maxTapInput.getValue());
+		final long trials = trialsInput.getValue();
+
+		simulateButton.setDisable(true);
+		totalLabel.setText("Wird berechnet …");
+		final HarvestSimulator simulator = new HarvestSimulator(plants);
+		CompletableFuture.supplyAsync(() -> simulator.simulate(harvestTime, terrain, location, TapDistribution.uniform(minTap, maxTap), trials, seed))
+				.whenCompleteAsync((simulated, e) -> {
+					simulateButton.setDisable(false);
+					if (e != null) {
+						ErrorLogger.logError(e);
+						totalLabel.setText(null);
+					} else {
+						showResults(simulated);
+					}
+				}, Platform::runLater);
+	}
+
+	private void showResults(final List<Result> simulated) {
+		results.getItems().setAll(simulated);
+		double total = 0;
+		for (final Result result : simulated) {
+			if (!Double.isNaN(result.meanValue())) {
+				total += result.meanValue();
+			}
+		}
+		totalLabel.setText("Wert pro Suche: " + DSAUtil.getMoneyString(total));
+	}
+}
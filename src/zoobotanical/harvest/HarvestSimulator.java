@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical.harvest;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import zoobotanical.CatalogIndex;
+import zoobotanical.DiceKernel;
+import zoobotanical.Plant;
+import zoobotanical.PlantCatalog;
+import zoobotanical.ZoobotanicalUtil;
+
+/**
+ * Estimates the yield of searching for any plant by rolling many searches, spread over all cores
+ */
+public class HarvestSimulator {
+
+	/**
+	 * The simulated yield of a single plant
+	 *
+	 * @param plant
+	 *            The plant
+	 * @param meanCount
+	 *            The average number of plants found per search
+	 * @param meanAmount
+	 *            The average amount harvested per search
+	 * @param amountVariance
+	 *            The variance of the amount harvested per search
+	 * @param meanValue
+	 *            The average value of the harvest per search or NaN if the plant has no price
+	 */
+	public record Result(Plant plant, double meanCount, double meanAmount, double amountVariance, double meanValue) {}
+
+	private static final int TRIALS_PER_TASK = 1 << 16;
+
+	private final PlantCatalog plants;
+
+	public HarvestSimulator(final PlantCatalog plants) {
+		this.plants = plants;
+	}
+
+	/**
+	 * Simulates searches for any plant
+	 *
+	 * @param harvestTime
+	 *            The ordinal of the harvest month or -1 for any month
+	 * @param terrain
+	 *            The ordinal of the terrain, must not be {@link ZoobotanicalUtil#ANY_TERRAIN}
+	 * @param location
+	 *            The regions at the location or null for any location
+	 * @param taps
+	 *            The distribution of the TaP* of the searches
+	 * @param trials
+	 *            The number of searches to simulate
+	 * @param seed
+	 *            The seed for the random numbers, the same seed yields the same results
+	 * @return The results for all plants that can be found with an amount, in catalog order
+	 */
+	public List<Result> simulate(final int harvestTime, final int terrain, final BitSet location, final TapDistribution taps, final long trials,
+			final long seed) {
+		if (terrain == ZoobotanicalUtil.ANY_TERRAIN || terrain < 0) throw new IllegalArgumentException("Ungültiges Gelände: " + terrain);
+		if (trials <= 0) throw new IllegalArgumentException("Ungültige Anzahl an Durchläufen: " + trials);
+
+		final long[] available = plants.getIndex().getAvailable(harvestTime, terrain, location);
+		final List<Plant> candidates = new ArrayList<>();
+		for (int ordinal = CatalogIndex.nextSetBit(available, 0); ordinal >= 0; ordinal = CatalogIndex.nextSetBit(available, ordinal + 1)) {
+			final Plant plant = plants.getPlants().get(ordinal);
+			if (plant.getAmount() == null) {
+				continue;
+			}
+			// Plants without a valid search difficulty can't be found, like in HarvestThresholds
+			final int difficulty = ZoobotanicalUtil.getSearchDifficulty(plant, terrain);
+			if (difficulty > 0 && difficulty != Integer.MAX_VALUE) {
+				candidates.add(plant);
+			}
+		}
+
+		// The number of plants found only depends on the TaP*, so it is computed once per plant and possible TaP*
+		final int plantCount = candidates.size();
+		final DiceKernel dice = plants.getDice();
+		final int[] ordinals = new int[plantCount];
+		final int[][] counts = new int[plantCount][taps.size()];
+		for (int i = 0; i < plantCount; ++i) {
+			final Plant plant = candidates.get(i);
+			ordinals[i] = plant.getOrdinal();
+			final int difficulty = ZoobotanicalUtil.getSearchDifficulty(plant, terrain);
+			for (int tap = 0; tap < taps.size(); ++tap) {
+				counts[i][tap] = ZoobotanicalUtil.getHarvestCount(false, taps.getValue(tap), difficulty);
+			}
+		}
+
+		// Each task gets its own random source, split off in a fixed order so the results do not depend on the scheduling
+		final int tasks = (int) ((trials + TRIALS_PER_TASK - 1) / TRIALS_PER_TASK);
+		final SplittableRandom[] randoms = new SplittableRandom[tasks];
+		final SplittableRandom root = new SplittableRandom(seed);
+		for (int task = 0; task < tasks; ++task) {
+			randoms[task] = root.split();
+		}
+
+		final double[] sums = IntStream.range(0, tasks).parallel().mapToObj(task -> {
+			final long first = (long) task * TRIALS_PER_TASK;
+			final long taskTrials = Math.min(TRIALS_PER_TASK, trials - first);
+			final SplittableRandom random = randoms[task];
+			// Per plant: found plants, amount, squared amount
+			final double[] sum = new double[plantCount * 3];
+			for (long trial = 0; trial < taskTrials; ++trial) {
+				final int tap = taps.sample(random);
+				for (int i = 0; i < plantCount; ++i) {
+					final int count = counts[i][tap];
+					if (count > 0) {
+						final double amount = dice.rollAmount(random.nextLong(), ordinals[i], count);
+						sum[i * 3] += count;
+						sum[i * 3 + 1] += amount;
+						sum[i * 3 + 2] += amount * amount;
+					}
+				}
+			}
+			return sum;
+		}).reduce((a, b) -> {
+			for (int i = 0; i < a.length; ++i) {
+				a[i] += b[i];
+			}
+			return a;
+		}).orElseThrow();
+
+		final List<Result> results = new ArrayList<>(plantCount);
+		for (int i = 0; i < plantCount; ++i) {
+			final Plant plant = candidates.get(i);
+			final double meanCount = sums[i * 3] / trials;
+			final double meanAmount = sums[i * 3 + 1] / trials;
+			final double amountVariance = Math.max(0, sums[i * 3 + 2] / trials - meanAmount * meanAmount);
+			results.add(new Result(plant, meanCount, meanAmount, amountVariance, plant.getPrice() * meanAmount));
+		}
+		return results;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 DSATool team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package zoobotanical.harvest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A discrete probability distribution of the TaP* achieved when searching for plants, negative values stand for a failed search
+ */
+public class TapDistribution {
+
+	/**
+	 * A distribution always yielding the same TaP*
+	 */
+	public static TapDistribution constant(final int tap) {
+		return new TapDistribution(new int[] { tap }, new double[] { 1 });
+	}
+
+	/**
+	 * A distribution yielding every TaP* from min to max with the same probability
+	 */
+	public static TapDistribution uniform(final int min, final int max) {
+		final int[] values = new int[max - min + 1];
+		final double[] weights = new double[values.length];
+		for (int i = 0; i < values.length; ++i) {
+			values[i] = min + i;
+			weights[i] = 1;
+		}
+		return new TapDistribution(values, weights);
+	}
+
+	private final int[] values;
+	private final double[] cumulative;
+
+	/**
+	 * @param values
+	 *            The possible TaP*
+	 * @param weights
+	 *            The relative probabilities of the values, need not sum up to 1
+	 */
+	public TapDistribution(final int[] values, final double[] weights) {
+		if (values.length == 0 || values.length != weights.length)
+			throw new IllegalArgumentException("Ungültige Verteilung: " + values.length + " Werte, " + weights.length + " Gewichte");
+		this.values = values.clone();
+		cumulative = new double[weights.length];
+		double total = 0;
+		for (int i = 0; i < weights.length; ++i) {
+			if (weights[i] < 0) throw new IllegalArgumentException("Negatives Gewicht: " + weights[i]);
+			total += weights[i];
+			cumulative[i] = total;
+		}
+		if (total <= 0) throw new IllegalArgumentException("Ungültige Verteilung: Gesamtgewicht " + total);
+		for (int i = 0; i < cumulative.length; ++i) {
+			cumulative[i] /= total;
+		}
+	}
+
+	public int getValue(final int index) {
+		return values[index];
+	}
+
+	/**
+	 * Draws the index of a value
+	 */
+	public int sample(final SplittableRandom random) {
+		final int index = Arrays.binarySearch(cumulative, random.nextDouble());
+		return Math.min(index < 0 ? -index - 1 : index + 1, values.length - 1);
+	}
+
+	public int size() {
+		return values.length;
+	}
+}